@@ -0,0 +1,70 @@
+package se.cygni.texasholdem.player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.cygni.texasholdem.game.Card;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the decisions in {@link Algorithms}, one fresh hand per call so
+ * that nothing is answered from the per street cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AlgorithmsBenchmark {
+
+    private static final int DEALS = 1024;
+
+    @Param({"3", "4", "5"})
+    public int boardSize;
+
+    private EvaluationContext context;
+    private List<Card>[] holeCards;
+    private List<Card>[] boardCards;
+    private int deal;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        context = EvaluationContext.basic();
+        DealCorpus corpus = new DealCorpus(DEALS, boardSize);
+        holeCards = new List[DEALS];
+        boardCards = new List[DEALS];
+        for (int i = 0; i < DEALS; i++) {
+            holeCards[i] = corpus.getHoleCardList(i);
+            boardCards[i] = corpus.getBoardCardList(i);
+        }
+    }
+
+    private Algorithms nextHand() {
+        deal = (deal + 1) % DEALS;
+        Algorithms algorithms = new Algorithms(context);
+        algorithms.sync(holeCards[deal], boardCards[deal]);
+        return algorithms;
+    }
+
+    @Benchmark
+    public double handStrength() {
+        return nextHand().getHandStrength();
+    }
+
+    @Benchmark
+    public double chenFormula() {
+        return nextHand().chenFormula();
+    }
+}
@@ -0,0 +1,117 @@
+package se.cygni.texasholdem.player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.cygni.texasholdem.game.Hand;
+import se.cygni.texasholdem.game.definitions.Rank;
+import se.cygni.texasholdem.game.util.PokerHandUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CardUtils rank extractors, each run on corpus hands of the category
+ * it expects so that the no-pair exceptions never fire, and the
+ * PrimitiveCards extractors they use on the same hands' masks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CardUtilsBenchmark {
+
+    private static final int DEALS = 20000;
+
+    private Hand[] highHands;
+    private Hand[] pairs;
+    private Hand[] twoPairs;
+    private Hand[] trips;
+    private long[] pairMasks;
+    private long[] tripsMasks;
+    private int deal;
+
+    @Setup
+    public void setUp() {
+        List<Hand> high = new ArrayList<>();
+        List<Hand> pair = new ArrayList<>();
+        List<Hand> twoPair = new ArrayList<>();
+        List<Hand> three = new ArrayList<>();
+        DealCorpus corpus = new DealCorpus(DEALS, 5);
+        for (int i = 0; i < DEALS; i++) {
+            int category = HandEvaluator.category(
+                    HandEvaluator.evaluate(corpus.getHoleCards(i) | corpus.getBoardCards(i)));
+            Hand hand = new PokerHandUtil(corpus.getBoardCardList(i), corpus.getHoleCardList(i)).getBestHand();
+            switch (category) {
+                case HandEvaluator.HIGH_HAND: high.add(hand); break;
+                case HandEvaluator.ONE_PAIR: pair.add(hand); break;
+                case HandEvaluator.TWO_PAIRS: twoPair.add(hand); break;
+                case HandEvaluator.THREE_OF_A_KIND: three.add(hand); break;
+                default: break;
+            }
+        }
+        highHands = high.toArray(new Hand[high.size()]);
+        pairs = pair.toArray(new Hand[pair.size()]);
+        twoPairs = twoPair.toArray(new Hand[twoPair.size()]);
+        trips = three.toArray(new Hand[three.size()]);
+        pairMasks = masks(pairs);
+        tripsMasks = masks(trips);
+    }
+
+    private static long[] masks(Hand[] hands) {
+        long[] masks = new long[hands.length];
+        for (int i = 0; i < hands.length; i++)
+            masks[i] = PrimitiveCards.mask(hands[i].getCards());
+        return masks;
+    }
+
+    private Hand next(Hand[] hands) {
+        deal++;
+        return hands[deal % hands.length];
+    }
+
+    private long next(long[] masks) {
+        deal++;
+        return masks[deal % masks.length];
+    }
+
+    @Benchmark
+    public Rank highHandRank() {
+        return CardUtils.getHighHandRank(next(highHands));
+    }
+
+    @Benchmark
+    public Rank pairRank() {
+        return CardUtils.getPairRank(next(pairs));
+    }
+
+    @Benchmark
+    public Rank highestTwoPairRank() {
+        return CardUtils.getHighestTwoPairRank(next(twoPairs));
+    }
+
+    @Benchmark
+    public Rank threeOfAKindRank() {
+        return CardUtils.getThreeOfAKindRank(next(trips));
+    }
+
+    @Benchmark
+    public int pairRankFromMask() {
+        return PrimitiveCards.pairRank(next(pairMasks));
+    }
+
+    @Benchmark
+    public int tripsRankFromMask() {
+        return PrimitiveCards.tripsRank(next(tripsMasks));
+    }
+}
@@ -0,0 +1,72 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.game.Card;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A fixed set of seeded deals, so every benchmark run and every version
+ * of the bot measures the same situations.
+ */
+public class DealCorpus {
+
+    public static final long SEED = 20140420L;
+
+    private final long[] holeCards;
+    private final long[] boardCards;
+
+    public DealCorpus(int size, int boardSize) {
+        this(size, boardSize, SEED);
+    }
+
+    public DealCorpus(int size, int boardSize, long seed) {
+        holeCards = new long[size];
+        boardCards = new long[size];
+        Random random = new Random(seed);
+        for (int i = 0; i < size; i++) {
+            long dealt = 0;
+            holeCards[i] = deal(random, 2, dealt);
+            dealt |= holeCards[i];
+            boardCards[i] = deal(random, boardSize, dealt);
+        }
+    }
+
+    private static long deal(Random random, int count, long dealt) {
+        long cards = 0;
+        while (Long.bitCount(cards) < count) {
+            long card = 1L << random.nextInt(52);
+            if ((dealt & card) == 0)
+                cards |= card;
+        }
+        return cards;
+    }
+
+    public int size() {
+        return holeCards.length;
+    }
+
+    public long getHoleCards(int deal) {
+        return holeCards[deal];
+    }
+
+    public long getBoardCards(int deal) {
+        return boardCards[deal];
+    }
+
+    public List<Card> getHoleCardList(int deal) {
+        return toList(holeCards[deal]);
+    }
+
+    public List<Card> getBoardCardList(int deal) {
+        return toList(boardCards[deal]);
+    }
+
+    static List<Card> toList(long cards) {
+        List<Card> list = new ArrayList<>(Long.bitCount(cards));
+        for (; cards != 0; cards &= cards - 1)
+            list.add(HandEvaluator.card(Long.numberOfTrailingZeros(cards)));
+        return list;
+    }
+}
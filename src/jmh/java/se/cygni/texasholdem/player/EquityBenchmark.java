@@ -0,0 +1,63 @@
+package se.cygni.texasholdem.player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the equity simulator: time for a fixed number of deals
+ * against a growing number of opponents. The exact river count is
+ * measured against the same opponents for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EquityBenchmark {
+
+    private static final int DEALS = 256;
+    private static final int SAMPLES = 1000;
+
+    @Param({"1", "3", "9"})
+    public int opponents;
+
+    private DealCorpus corpus;
+    private DealCorpus riverCorpus;
+    private EquitySimulator simulator;
+    private int deal;
+
+    @Setup
+    public void setUp() {
+        corpus = new DealCorpus(DEALS, 3);
+        riverCorpus = new DealCorpus(DEALS, 5);
+        simulator = new EquitySimulator(DealCorpus.SEED);
+    }
+
+    @Benchmark
+    public double flopEquity() {
+        deal = (deal + 1) % DEALS;
+        return simulator.simulate(corpus.getHoleCards(deal), corpus.getBoardCards(deal), opponents,
+                Long.MAX_VALUE, 0, SAMPLES).getEquity();
+    }
+
+    @Benchmark
+    public double riverEquity() {
+        deal = (deal + 1) % DEALS;
+        long holeCards = riverCorpus.getHoleCards(deal);
+        long boardCards = riverCorpus.getBoardCards(deal);
+        return new RiverEquity(boardCards, holeCards)
+                .equity(HandEvaluator.evaluate(holeCards | boardCards), opponents);
+    }
+}
@@ -0,0 +1,51 @@
+package se.cygni.texasholdem.player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.cygni.texasholdem.game.Hand;
+import se.cygni.texasholdem.game.util.PokerHandUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seven card hand evaluation, the bit mask evaluator next to the
+ * PokerHandUtil it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HandEvaluatorBenchmark {
+
+    private static final int DEALS = 4096;
+
+    private DealCorpus corpus;
+    private int deal;
+
+    @Setup
+    public void setUp() {
+        corpus = new DealCorpus(DEALS, 5);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        deal = (deal + 1) % DEALS;
+        return HandEvaluator.evaluate(corpus.getHoleCards(deal) | corpus.getBoardCards(deal));
+    }
+
+    @Benchmark
+    public Hand pokerHandUtil() {
+        deal = (deal + 1) % DEALS;
+        return new PokerHandUtil(corpus.getBoardCardList(deal), corpus.getHoleCardList(deal)).getBestHand();
+    }
+}
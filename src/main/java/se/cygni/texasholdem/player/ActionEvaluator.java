@@ -0,0 +1,133 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+
+/**
+ * Expected chips of each action on offer, all from one equity: our share
+ * of the pot against the opponents still in the hand.
+ * <p/>
+ * Chips already in the pot are sunk, so folding is worth zero. Checking,
+ * calling and raising put the action's amount in and win our equity of
+ * the pot it leaves. A raise is assumed to be called by every opponent, as
+ * far as their chips go. Those three keep playing: with more than our fair
+ * share of the pot, every street still to come adds a bet from everyone
+ * for as long as the shorter of our stack and the deepest opponent's
+ * lasts, and we win our equity of it less our own bet. With less we give
+ * up later instead of paying, so the streets to come never count against
+ * us. All in puts our whole stack in with nothing to come.
+ */
+public final class ActionEvaluator {
+
+    private final double equity;
+    private final long pot;
+    private final long toCall;
+    private final long myChips;
+    private final long[] opponentChips;
+    private final long futureBets;
+
+    /**
+     * @param equity        our share of the pot at the showdown
+     * @param pot           all chips in the pot so far
+     * @param toCall        what we owe to stay in, 0 when we may check; it
+     *                      may be more than our chips behind
+     * @param myChips       our chips behind
+     * @param opponentChips the chips behind of each opponent still in the hand
+     * @param futureBets    chips each player may bet on the streets to come
+     */
+    public ActionEvaluator(double equity, long pot, long toCall, long myChips,
+                           long[] opponentChips, long futureBets) {
+        this.equity = equity;
+        this.pot = pot;
+        this.toCall = toCall;
+        this.myChips = myChips;
+        this.opponentChips = opponentChips;
+        this.futureBets = futureBets;
+    }
+
+    public double getEquity() {
+        return equity;
+    }
+
+    public double value(Action action) {
+        return value(action.getActionType(), action.getAmount(), equity, pot, toCall, myChips,
+                opponentChips, futureBets);
+    }
+
+    /**
+     * {@link #value(Action)} of an action of {@code type} putting in
+     * {@code amount}, for callers scoring many hands without building an
+     * evaluator and actions for each; the other parameters are the
+     * constructor's.
+     */
+    static double value(ActionType type, long amount, double equity, long pot, long toCall, long myChips,
+                        long[] opponentChips, long futureBets) {
+        switch (type) {
+            case FOLD:
+                return 0;
+            case CHECK:
+                return equity * pot + future(0, toCall, myChips, opponentChips, futureBets, equity);
+            case CALL:
+                return equity * (pot + amount) - amount
+                        + future(amount, toCall, myChips, opponentChips, futureBets, equity);
+            case RAISE:
+                return bet(amount, equity, pot, toCall, opponentChips)
+                        + future(amount, toCall, myChips, opponentChips, futureBets, equity);
+            case ALL_IN:
+                return bet(amount, equity, pot, toCall, opponentChips);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * The most valuable of {@code actions} that puts no more chips in than
+     * {@code limit}; folding and checking are always within it. Null
+     * actions are skipped, and of equally valuable ones the first is taken.
+     */
+    public Action best(Action limit, Action... actions) {
+        Action best = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Action action : actions) {
+            if (action == null || action.getAmount() > limit.getAmount())
+                continue;
+            double value = value(action);
+            if (value > bestValue) {
+                best = action;
+                bestValue = value;
+            }
+        }
+        return best != null ? best : limit;
+    }
+
+    /**
+     * Putting {@code amount} in now, with each opponent matching what it
+     * raises by as far as they can.
+     */
+    private static double bet(long amount, double equity, long pot, long toCall, long[] opponentChips) {
+        long raise = Math.max(0, amount - toCall);
+        long called = 0;
+        for (long chips : opponentChips)
+            called += Math.min(raise, chips);
+        return equity * (pot + amount + called) - amount;
+    }
+
+    /**
+     * The streets to come after putting {@code amount} in now, bet by the
+     * opponents with chips left.
+     */
+    private static double future(long amount, long toCall, long myChips, long[] opponentChips, long futureBets,
+                                 double equity) {
+        long deepest = 0;
+        int bettors = 0;
+        for (long chips : opponentChips) {
+            long behind = chips - Math.max(0, amount - toCall);
+            if (behind > 0) {
+                bettors++;
+                deepest = Math.max(deepest, behind);
+            }
+        }
+        long bets = Math.min(futureBets, Math.min(myChips - amount, deepest));
+        return bets <= 0 ? 0 : bets * Math.max(0, equity * (bettors + 1) - 1);
+    }
+}
@@ -1,36 +1,89 @@
 package se.cygni.texasholdem.player;
 
-import se.cygni.texasholdem.client.CurrentPlayState;
 import se.cygni.texasholdem.game.Card;
-import se.cygni.texasholdem.game.Deck;
-import se.cygni.texasholdem.game.Hand;
-import se.cygni.texasholdem.game.definitions.PokerHand;
-import se.cygni.texasholdem.game.definitions.Rank;
 
-import se.cygni.texasholdem.game.util.PokerHandUtil;
-
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
  * Created by bystam on 20/04/14.
+ * <p/>
+ * One instance follows a single hand: cards are added as they are dealt
+ * and everything derived from them is kept until the next card arrives,
+ * so repeated action requests on the same street are answered from cache.
  */
 public class Algorithms {
 
-    private CurrentPlayState playState;
-    private Hand myHand;
-    private List<Card> boardCards;
+    private final ParallelEvaluator evaluator;
+    private final HandStrengthCache cache;
+    private Card firstCard;
+    private Card secondCard;
+    private long myCards;
+    private long boardCards;
+    private int myHandRank;
+
+    private double chenScore = Double.NaN;
+    private double handStrength = Double.NaN;
+    private OpponentRange strengthRange;
+    private double rangeStrength = Double.NaN;
+    private EquityResult equity;
+    private RiverEquity riverEquity;
+    private final HandPotential[] potentials = new HandPotential[3];
+    private int equityOpponents;
+
+    public Algorithms(EvaluationContext context) {
+        this.evaluator = context.getEvaluator();
+        this.cache = context.getHandStrengthCache();
+    }
+
+    public void addMyCard(Card card) {
+        if (firstCard == null)
+            firstCard = card;
+        else
+            secondCard = card;
+        myCards |= HandEvaluator.mask(card);
+        chenScore = Double.NaN;
+        cardsChanged();
+    }
+
+    public void addCommunityCard(Card card) {
+        boardCards |= HandEvaluator.mask(card);
+        cardsChanged();
+    }
+
+    /**
+     * Catches up with the play state in case a card event was missed; a
+     * no-op when we already know all the cards.
+     */
+    public void sync(List<Card> myCardList, List<Card> boardCardList) {
+        long mine = HandEvaluator.mask(myCardList);
+        long board = HandEvaluator.mask(boardCardList);
+        if (mine == myCards && board == boardCards)
+            return;
+        firstCard = myCardList.size() > 0 ? myCardList.get(0) : null;
+        secondCard = myCardList.size() > 1 ? myCardList.get(1) : null;
+        myCards = mine;
+        boardCards = board;
+        chenScore = Double.NaN;
+        cardsChanged();
+    }
 
-    public Algorithms(CurrentPlayState playState) {
-        this.playState = playState;
-        boardCards = playState.getCommunityCards();
-        myHand = new PokerHandUtil(boardCards, playState.getMyCards()).getBestHand();
+    private void cardsChanged() {
+        myHandRank = HandEvaluator.evaluate(myCards | boardCards);
+        handStrength = Double.NaN;
+        rangeStrength = Double.NaN;
+        equity = null;
+        riverEquity = null;
+        potentials[1] = null;
+        potentials[2] = null;
     }
 
     public double chenFormula () {
-        Card one = playState.getMyCards().get(0);
-        Card two = playState.getMyCards().get(1);
+        if (Double.isNaN(chenScore))
+            chenScore = computeChenFormula(firstCard, secondCard);
+        return chenScore;
+    }
+
+    static double computeChenFormula (Card one, Card two) {
     	int cardOneValue = one.getRank().getOrderValue();
     	int cardTwoValue = two.getRank().getOrderValue();
     	double baseScore = Math.max(getChenCardScore(one), getChenCardScore(two));
@@ -54,7 +107,7 @@ public class Algorithms {
 		return baseScore;// - (double) gap;
     }
     
-    private double getChenCardScore (Card card) {
+    private static double getChenCardScore (Card card) {
     	switch(card.getRank()) {
     	case ACE: return 10;
     	case KING: return 8;
@@ -64,99 +117,103 @@ public class Algorithms {
     	}
     }
     public double getHandStrength() {
-        double ahead = 0, tied = 0, behind = 0;
-
-        for (Hand oppHand : getAllOpponentCombinations()) {
-            PokerHand myRank = myHand.getPokerHand();
-            PokerHand oppRank = oppHand.getPokerHand();
-            if (compareHands(myHand, oppHand) < 0)
-                ahead++;
-            else if (compareHands(myHand, oppHand) == 0)
-                tied++;
-            else
-                behind++;
-
-        }
-        return (ahead + tied / 2) / (ahead + tied + behind);
-    }
-
-    private int compareHands (Hand my, Hand opp) {
-        if (my.getPokerHand().getOrderValue() > opp.getPokerHand().getOrderValue())
-            return -1;
-        else if (my.getPokerHand().getOrderValue() < opp.getPokerHand().getOrderValue())
-            return 1;
-
-        switch(my.getPokerHand()) {
-            case HIGH_HAND: return compareHighHand(my, opp);
-            case ONE_PAIR: return comparePairs(my, opp);
-            case TWO_PAIRS: return compareTwoPairs(my, opp);
-            case THREE_OF_A_KIND: return compareThreeOfAKing(my, opp);
-            case STRAIGHT: return compareStraight (my, opp);
-            case FLUSH: return compareFlush (my, opp);
-            default: break;
+        if (!Double.isNaN(handStrength))
+            return handStrength;
+
+        long key = 0;
+        if (cache != null) {
+            key = HandStrengthCache.key(myCards, boardCards);
+            handStrength = cache.get(key);
+            if (!Double.isNaN(handStrength))
+                return handStrength;
         }
-        return 0;
+        handStrength = evaluator.handStrength(myHandRank, boardCards, getUnseenCards());
+        if (cache != null)
+            cache.put(key, handStrength);
+        return handStrength;
     }
 
-    private int compareHighHand(Hand my, Hand opp) {
-        Rank myPair = CardUtils.getHighHandRank(my);
-        Rank oppPair = CardUtils.getHighHandRank(opp);
-        return 0;
+    /**
+     * Hand strength against a single opponent holding a hand from {@code range}.
+     */
+    public double getHandStrength(OpponentRange range) {
+        if (range.isUniform())
+            return getHandStrength();
+        if (Double.isNaN(rangeStrength) || range != strengthRange) {
+            rangeStrength = evaluator.handStrength(myHandRank, boardCards, getUnseenCards(), range);
+            strengthRange = range;
+        }
+        return rangeStrength;
     }
 
-    private int comparePairs(Hand my, Hand opp) {
-        Rank myPair = CardUtils.getPairRank(my);
-        Rank oppPair = CardUtils.getPairRank(opp);
-        return compareRanks(myPair, oppPair);
+    /**
+     * Exact share of the pot against {@code opponents} random hands once the
+     * board is complete.
+     */
+    public double getRiverEquity(int opponents) {
+        if (riverEquity == null)
+            riverEquity = new RiverEquity(boardCards, myCards);
+        return riverEquity.equity(myHandRank, opponents);
     }
 
-    private int compareTwoPairs(Hand my, Hand opp) {
-        Rank myTwoPairs = CardUtils.getHighestTwoPairRank(my);
-        Rank oppTwoPairs = CardUtils.getHighestTwoPairRank(opp);
-        return compareRanks(myTwoPairs, oppTwoPairs);
+    /**
+     * Draw potential over the next card, or the next two on the flop when
+     * {@code lookahead} is 2.
+     */
+    public HandPotential getHandPotential(int lookahead) {
+        if (potentials[lookahead] == null)
+            potentials[lookahead] = evaluator.handPotential(myCards, boardCards, lookahead);
+        return potentials[lookahead];
     }
 
-    private int compareThreeOfAKing(Hand my, Hand opp) {
-        Rank myThree = CardUtils.getThreeOfAKindRank(my);
-        Rank oppThree = CardUtils.getThreeOfAKindRank(opp);
-        return compareRanks(myThree, oppThree);
+    /**
+     * Our share of the pot against {@code opponents} random hands once the
+     * board is complete, estimated until {@code deadlineNanos}.
+     */
+    public EquityResult getEquity(int opponents, long deadlineNanos) {
+        if (equity == null || equityOpponents != opponents) {
+            equity = evaluator.equity(myCards, boardCards, opponents, deadlineNanos);
+            equityOpponents = opponents;
+        }
+        return equity;
     }
 
-    private int compareStraight(Hand my, Hand opp) {
-        Rank myStraight = CardUtils.getStraightRank(my);
-        Rank oppStraight = CardUtils.getStraightRank(opp);
-        return compareRanks(myStraight, oppStraight);
+    /**
+     * The cheapest estimate there is: the preflop table, or without one the
+     * Chen score stretched over the heads up equities of 72o and AA.
+     */
+    public double getPreflopStrength(PreflopTable table, int opponents) {
+        if (table != null)
+            return headsUpStrength(table.getEquity(myCards, opponents), opponents);
+        return Math.max(0, Math.min(1, 0.3 + 0.55 * (chenFormula() + 1.5) / 21.5));
     }
 
-    private int compareFlush(Hand my, Hand opp) {
-        Rank myFlush = CardUtils.getFlushRank(my);
-        Rank oppFlush = CardUtils.getFlushRank(opp);
-        return compareRanks(myFlush, oppFlush);
+    /**
+     * Maps an equity against {@code opponents} hands onto the heads up scale:
+     * a fair share of the pot becomes 0.5 while 0 and 1 stay put.
+     */
+    public static double headsUpStrength(double equity, int opponents) {
+        if (opponents <= 1)
+            return equity;
+        return Math.pow(equity, Math.log(2) / Math.log(opponents + 1));
     }
 
-    private int compareRanks (Rank my, Rank opp) {
-        int diff = my.getOrderValue() - opp.getOrderValue();
-        return diff > 0 ? -1 : (diff == 0 ? 0 : 1);
+    /**
+     * The inverse of {@link #headsUpStrength(double, int)}: the share of the
+     * pot against {@code opponents} hands that a heads up strength stands for.
+     */
+    public static double potShare(double strength, int opponents) {
+        strength = Math.max(0, Math.min(1, strength));
+        if (opponents <= 1)
+            return strength;
+        return Math.pow(strength, Math.log(opponents + 1) / Math.log(2));
     }
 
-    private List<Hand> getAllOpponentCombinations() {
-        List<Hand> allCombinations = new ArrayList<>();
-        List<Card> unseenCards = getUnseenCards();
-        for (int i = 0; i < unseenCards.size(); i++) {
-            for (int k = i + 1; k < unseenCards.size(); k++) {
-                List<Card> oppCards = Arrays.asList(unseenCards.get(i), unseenCards.get(k));
-                PokerHandUtil oppUtil = new PokerHandUtil(boardCards, oppCards);
-                Hand oppHand = oppUtil.getBestHand();
-
-                allCombinations.add(oppHand);
-            }
-        }
-        return allCombinations;
+    public int getMyHandRank() {
+        return myHandRank;
     }
 
-    private List<Card> getUnseenCards () {
-        List<Card> unseen = Deck.getOrderedListOfCards();
-        unseen.removeAll (playState.getMyCardsAndCommunityCards());
-        return unseen;
+    private long getUnseenCards () {
+        return HandEvaluator.FULL_DECK & ~(myCards | boardCards);
     }
 }
@@ -0,0 +1,172 @@
+package se.cygni.texasholdem.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.cygni.texasholdem.game.Room;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs any number of bots in one JVM. They share one
+ * {@link EvaluationContext}, so the preflop table, caches and thread pool
+ * are loaded once; each bot has its own client and play state.
+ * <p/>
+ * A bot that loses its connection, or fails to connect, tries again after
+ * a delay that doubles on every failure up to a minute. The delay starts
+ * over once a connection has lasted that long.
+ */
+public class BotRunner {
+
+    private static Logger log = LoggerFactory.getLogger(BotRunner.class);
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60000;
+
+    private final String serverHost;
+    private final int serverPort;
+    private final Room room;
+    private final EvaluationContext context;
+    private final List<KvargBot> bots = new CopyOnWriteArrayList<>();
+    private final Map<KvargBot, Backoff> backoffs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean running = true;
+
+    public BotRunner(String serverHost, int serverPort, Room room, EvaluationContext context) {
+        this.serverHost = serverHost;
+        this.serverPort = serverPort;
+        this.room = room;
+        this.context = context;
+        // not a daemon: it keeps the JVM alive while bots wait to reconnect
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "bot-runner");
+            }
+        });
+    }
+
+    public KvargBot addBot(String name) {
+        KvargBot bot = new KvargBot(name, serverHost, serverPort, context);
+        bot.setRunner(this);
+        bot.getMetrics().publish();
+        bots.add(bot);
+        backoffs.put(bot, new Backoff());
+        return bot;
+    }
+
+    public List<KvargBot> getBots() {
+        return bots;
+    }
+
+    /**
+     * Warms the JVM up, see {@link WarmUp}, then connects all bots without
+     * waiting for them to connect.
+     */
+    public void start() {
+        WarmUp.run(context);
+        for (KvargBot bot : bots)
+            schedule(bot, 0);
+    }
+
+    void connectionLost(KvargBot bot) {
+        Backoff backoff = backoffs.get(bot);
+        if (backoff == null || !running)
+            return;
+        schedule(bot, backoff.next());
+    }
+
+    /**
+     * Stops reconnecting and disconnects every bot.
+     */
+    public void shutdown() {
+        running = false;
+        scheduler.shutdownNow();
+        for (KvargBot bot : bots) {
+            bot.disconnect();
+            bot.getHistory().close();
+            bot.getMetrics().stopReporting();
+            bot.getMetrics().unregister();
+        }
+    }
+
+    private void schedule(final KvargBot bot, long delayMillis) {
+        if (!running)
+            return;
+        if (delayMillis > 0)
+            log.info("Connecting {} in {} ms", bot.getName(), delayMillis);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                connect(bot);
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void connect(KvargBot bot) {
+        if (!running)
+            return;
+        Backoff backoff = backoffs.get(bot);
+        try {
+            bot.play(room);
+            backoff.connected();
+            log.info("{} connected to {}:{}", bot.getName(), serverHost, serverPort);
+        } catch (Exception e) {
+            log.warn(bot.getName() + " could not connect to " + serverHost + ":" + serverPort, e);
+            schedule(bot, backoff.next());
+        }
+    }
+
+    /**
+     * Runs a number of bots: {@code BotRunner [bots] [name] [host] [port] [room]}.
+     * With more than one bot they are named {@code name-1}, {@code name-2}, ...
+     */
+    public static void main(String... args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        String name = args.length > 1 ? args[1] : KvargBot.DEFAULT_NAME;
+        String host = args.length > 2 ? args[2] : "poker.cygni.se";
+        int port = args.length > 3 ? Integer.parseInt(args[3]) : 4711;
+        Room room = args.length > 4 ? Room.valueOf(args[4]) : Room.TRAINING;
+
+        final EvaluationContext context = EvaluationContext.fromSystemProperties();
+        final BotRunner runner = new BotRunner(host, port, room, context);
+        for (int i = 1; i <= count; i++)
+            runner.addBot(count == 1 ? name : name + "-" + i);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                runner.shutdown();
+                context.shutdown();
+            }
+        });
+        runner.start();
+    }
+
+    private static class Backoff {
+        private long delayMillis;
+        private long connectedAt;
+
+        synchronized void connected() {
+            connectedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * The delay before the next attempt, with jitter so that bots losing
+         * their connections together don't all come back at once.
+         */
+        synchronized long next() {
+            if (connectedAt != 0 && System.currentTimeMillis() - connectedAt > MAX_BACKOFF_MILLIS)
+                delayMillis = 0;
+            connectedAt = 0;
+            delayMillis = delayMillis == 0 ? INITIAL_BACKOFF_MILLIS : Math.min(MAX_BACKOFF_MILLIS, delayMillis * 2);
+            return delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.communication.message.event.*;
+import se.cygni.texasholdem.communication.message.request.ActionRequest;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.Player;
+
+/**
+ * Baseline opponent for local play: checks when it can, otherwise calls,
+ * and never folds or raises.
+ */
+public class CallingStation implements Player {
+
+    private final String name;
+
+    public CallingStation(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Action actionRequired(ActionRequest request) {
+        Action call = null;
+        Action allIn = null;
+        for (Action action : request.getPossibleActions()) {
+            switch (action.getActionType()) {
+                case CHECK:
+                    return action;
+                case CALL:
+                    call = action;
+                    break;
+                case ALL_IN:
+                    allIn = action;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return call != null ? call : allIn;
+    }
+
+    @Override
+    public void onPlayIsStarted(PlayIsStartedEvent event) {
+    }
+
+    @Override
+    public void onTableChangedStateEvent(TableChangedStateEvent event) {
+    }
+
+    @Override
+    public void onYouHaveBeenDealtACard(YouHaveBeenDealtACardEvent event) {
+    }
+
+    @Override
+    public void onCommunityHasBeenDealtACard(CommunityHasBeenDealtACardEvent event) {
+    }
+
+    @Override
+    public void onPlayerBetBigBlind(PlayerBetBigBlindEvent event) {
+    }
+
+    @Override
+    public void onPlayerBetSmallBlind(PlayerBetSmallBlindEvent event) {
+    }
+
+    @Override
+    public void onPlayerFolded(PlayerFoldedEvent event) {
+    }
+
+    @Override
+    public void onPlayerForcedFolded(PlayerForcedFoldedEvent event) {
+    }
+
+    @Override
+    public void onPlayerCalled(PlayerCalledEvent event) {
+    }
+
+    @Override
+    public void onPlayerRaised(PlayerRaisedEvent event) {
+    }
+
+    @Override
+    public void onTableIsDone(TableIsDoneEvent event) {
+    }
+
+    @Override
+    public void onPlayerWentAllIn(PlayerWentAllInEvent event) {
+    }
+
+    @Override
+    public void onPlayerChecked(PlayerCheckedEvent event) {
+    }
+
+    @Override
+    public void onYouWonAmount(YouWonAmountEvent event) {
+    }
+
+    @Override
+    public void onShowDown(ShowDownEvent event) {
+    }
+
+    @Override
+    public void onPlayerQuit(PlayerQuitEvent event) {
+    }
+
+    @Override
+    public void connectionToGameServerLost() {
+    }
+
+    @Override
+    public void connectionToGameServerEstablished() {
+    }
+
+    @Override
+    public void serverIsShuttingDown(ServerIsShuttingDownEvent event) {
+    }
+}
@@ -1,59 +1,45 @@
 package se.cygni.texasholdem.player;
 
-import se.cygni.texasholdem.game.Card;
 import se.cygni.texasholdem.game.Hand;
 import se.cygni.texasholdem.game.definitions.Rank;
 
-import java.util.List;
-
 /**
  * Created by bystam on 21/04/14.
+ * <p/>
+ * Reads ranks out of a hand through its card mask, see {@link PrimitiveCards}
+ * for the variants that take a mask and return -1 instead of throwing.
  */
 public class CardUtils {
 
     public static Rank getHighHandRank(Hand hand) {
-        return hand.getCards().get(0).getRank();
+        return PrimitiveCards.toRank(PrimitiveCards.highRank(PrimitiveCards.mask(hand.getCards())));
     }
 
     public static Rank getPairRank (Hand hand) {
-        List<Card> cards = hand.getCards();
-        for (int i = 0; i < cards.size() - 1; i++) {
-            if (cards.get(i).getRank() == cards.get(i+1).getRank())
-                return cards.get(i).getRank();
-        }
-        throw new RuntimeException("hand has no pair");
+        int rank = PrimitiveCards.pairRank(PrimitiveCards.mask(hand.getCards()));
+        if (rank < 0)
+            throw new RuntimeException("hand has no pair");
+        return PrimitiveCards.toRank(rank);
     }
 
     public static Rank getHighestTwoPairRank (Hand hand) {
-        List<Card> cards = hand.getCards();
-        Rank highest = null;
-        for (int i = 0; i < cards.size() - 1; i++) {
-            if (cards.get(i).getRank() == cards.get(i+1).getRank()) {
-                if (highest == null || highest.getOrderValue() < cards.get(i).getRank().getOrderValue())
-                    highest = cards.get(i).getRank();
-            }
-        }
-        if (highest == null)
-            throw new RuntimeException("hand has no pair");
-        return highest;
+        return getPairRank(hand);
     }
 
     public static Rank getThreeOfAKindRank (Hand hand) {
-        List<Card> cards = hand.getCards();
-        for (int i = 0; i < cards.size() - 2; i++) {
-            if (cards.get(i).getRank() == cards.get(i+1).getRank() &&
-                    cards.get(i+1).getRank() == cards.get(i+2).getRank())
-                return cards.get(i).getRank();
-        }
-
-        throw new RuntimeException("hand has no three of a kind");
+        int rank = PrimitiveCards.tripsRank(PrimitiveCards.mask(hand.getCards()));
+        if (rank < 0)
+            throw new RuntimeException("hand has no three of a kind");
+        return PrimitiveCards.toRank(rank);
     }
 
     public static Rank getStraightRank (Hand hand) {
-        return getHighHandRank(hand);
+        int rank = PrimitiveCards.straightHigh(PrimitiveCards.mask(hand.getCards()));
+        return rank < 0 ? getHighHandRank(hand) : PrimitiveCards.toRank(rank);
     }
 
     public static Rank getFlushRank (Hand hand) {
-        return getHighHandRank(hand);
+        int kickers = PrimitiveCards.flushKickers(PrimitiveCards.mask(hand.getCards()));
+        return kickers < 0 ? getHighHandRank(hand) : PrimitiveCards.toRank(kickers >>> 16);
     }
 }
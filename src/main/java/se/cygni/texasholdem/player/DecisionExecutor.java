@@ -0,0 +1,280 @@
+package se.cygni.texasholdem.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.cygni.texasholdem.communication.message.request.ActionRequest;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+import se.cygni.texasholdem.game.Player;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs bots off the client threads. Every bot gets a serial executor of its
+ * own on top of one shared executor, so events and decisions for a table
+ * keep their order while hundreds of tables share a few threads.
+ * <p/>
+ * The client thread waits for a decision only as long as the bot's
+ * {@link TimeBudget} allows and then answers with check, or fold when
+ * checking is not allowed. Events are handed over without waiting.
+ * A {@link TimedPlayer} is told when each request arrived, so the time it
+ * waited behind earlier events counts against its budget, and which answer
+ * was actually sent, so a decision finishing too late is not taken for one.
+ * It also copies the state it decides from before the client thread moves
+ * on, as that state is not safe to read from another thread.
+ * <p/>
+ * The shared executor runs each task on a virtual thread when the JVM has
+ * them (Java 21 and later), otherwise on a fixed pool of platform threads.
+ */
+public class DecisionExecutor {
+
+    private static Logger log = LoggerFactory.getLogger(DecisionExecutor.class);
+
+    /**
+     * {@code inline} (the default) to decide on the client thread,
+     * {@code pool} for a pool of platform threads, {@code virtual} for
+     * virtual threads where available.
+     */
+    public static final String MODE_PROPERTY = "kvargbot.decisionExecutor";
+    public static final String THREADS_PROPERTY = "kvargbot.decisionThreads";
+
+    /**
+     * A player that decides against the time a request arrived, and records
+     * its answer as sent only when it wins the {@code answered} flag; the
+     * client thread takes the flag when it answers with a fallback instead.
+     */
+    interface TimedPlayer extends Player {
+
+        /**
+         * Called on the client thread when {@code request} arrives, to copy
+         * what the decision reads from the client's state.
+         *
+         * @return the decision, run in turn with the events
+         */
+        Callable<Action> prepare(ActionRequest request, long arrivalNanos, AtomicBoolean answered);
+
+        /**
+         * Called in turn with the events once {@code fallback} was sent for
+         * {@code request}, {@code nanos} after it arrived.
+         */
+        void fallbackSent(ActionRequest request, Action fallback, long nanos);
+    }
+
+    private final ExecutorService executor;
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public DecisionExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the executor configured by {@value #MODE_PROPERTY}, or null to run inline
+     */
+    public static DecisionExecutor fromSystemProperties() {
+        String mode = System.getProperty(MODE_PROPERTY, "inline");
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        if ("pool".equals(mode))
+            return pool(threads);
+        if ("virtual".equals(mode))
+            return virtualThreads(threads);
+        return null;
+    }
+
+    public static DecisionExecutor pool(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return new DecisionExecutor(Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "decision-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+
+    /**
+     * Virtual threads when the JVM has them, looked up reflectively since we
+     * build for Java 8; otherwise a pool of {@code threads}.
+     */
+    public static DecisionExecutor virtualThreads(int threads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new DecisionExecutor((ExecutorService) factory.invoke(null));
+        } catch (ReflectiveOperationException e) {
+            log.info("No virtual threads in this JVM, deciding on {} pooled threads", threads);
+            return pool(threads);
+        }
+    }
+
+    /**
+     * A player for the client to call instead of {@code player}: events are
+     * queued to it and decisions waited for at most {@code budget}'s fallback time.
+     */
+    public Player isolate(final Player player, final TimeBudget budget) {
+        final Executor serial = new SerialExecutor(executor);
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, final Method method, final Object[] args) throws Throwable {
+                        if (method.getDeclaringClass() == Object.class || "getName".equals(method.getName()))
+                            return invokeOn(player, method, args);
+                        if ("actionRequired".equals(method.getName()))
+                            return decide(player, (ActionRequest) args[0], serial, budget);
+                        serial.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    invokeOn(player, method, args);
+                                } catch (Throwable e) {
+                                    log.warn(player.getName() + " failed to handle " + method.getName(), e);
+                                }
+                            }
+                        });
+                        return null;
+                    }
+                });
+    }
+
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * Events still queued to a bot are dropped.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private Action decide(final Player player, final ActionRequest request, Executor serial, TimeBudget budget) {
+        final long arrivalNanos = System.nanoTime();
+        final AtomicBoolean answered = new AtomicBoolean();
+        final Callable<Action> prepared = player instanceof TimedPlayer
+                ? ((TimedPlayer) player).prepare(request, arrivalNanos, answered) : null;
+        FutureTask<Action> decision = new FutureTask<>(new Callable<Action>() {
+            @Override
+            public Action call() throws Exception {
+                // a fallback was sent before the decision got its turn
+                if (answered.get())
+                    return null;
+                return prepared != null ? prepared.call() : player.actionRequired(request);
+            }
+        });
+        serial.execute(decision);
+        try {
+            Action action = decision.get(budget.fallbackNanos() - (System.nanoTime() - arrivalNanos),
+                    TimeUnit.NANOSECONDS);
+            if (action != null)
+                return action;
+            log.warn("{} made no decision, using a fallback", player.getName());
+        } catch (TimeoutException e) {
+            // not cancelled: a decision that has started may still be the one sent
+            log.warn("{} did not decide in time, using a fallback", player.getName());
+        } catch (ExecutionException e) {
+            log.warn(player.getName() + " failed to decide, using a fallback", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!answered.compareAndSet(false, true)) {
+            // the decision was recorded as sent just as we gave up on it, wait for it to return
+            try {
+                Action action = decision.get();
+                if (action != null)
+                    return action;
+            } catch (InterruptedException | ExecutionException e) {
+                log.warn(player.getName() + " lost a decision it had made", e);
+            }
+        }
+        fallbacks.incrementAndGet();
+        final Action fallback = fallback(request);
+        final long elapsed = System.nanoTime() - arrivalNanos;
+        budget.actionSent();
+        if (player instanceof TimedPlayer) {
+            serial.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ((TimedPlayer) player).fallbackSent(request, fallback, elapsed);
+                }
+            });
+        }
+        return fallback;
+    }
+
+    static Action fallback(ActionRequest request) {
+        Action fold = null;
+        for (Action action : request.getPossibleActions()) {
+            if (action.getActionType() == ActionType.CHECK)
+                return action;
+            if (action.getActionType() == ActionType.FOLD)
+                fold = action;
+        }
+        return fold;
+    }
+
+    private static Object invokeOn(Player player, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(player, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs tasks one at a time, in order, on an underlying executor.
+     */
+    private static class SerialExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private final Executor executor;
+        private Runnable active;
+
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(final Runnable task) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        scheduleNext();
+                    }
+                }
+            });
+            if (active == null)
+                scheduleNext();
+        }
+
+        private synchronized void scheduleNext() {
+            active = tasks.poll();
+            if (active == null)
+                return;
+            try {
+                executor.execute(active);
+            } catch (RejectedExecutionException e) {
+                log.debug("Shut down, dropping {} queued tasks", tasks.size() + 1);
+                tasks.clear();
+                active = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package se.cygni.texasholdem.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decision latency per street, equity samples and forced folds for one bot.
+ * <p/>
+ * Once published it is registered as an MBean under
+ * {@code se.cygni.texasholdem.player:type=DecisionMetrics} and, when
+ * {@value #INTERVAL_PROPERTY} is above zero, summarized to the log and to the
+ * CSV file in {@value #CSV_PROPERTY} at that interval.
+ */
+public class DecisionMetrics implements DecisionMetricsMBean {
+
+    private static Logger log = LoggerFactory.getLogger(DecisionMetrics.class);
+
+    public static final String TIMEOUT_PROPERTY = "kvargbot.actionTimeoutMillis";
+    public static final String INTERVAL_PROPERTY = "kvargbot.metricsIntervalSeconds";
+    public static final String CSV_PROPERTY = "kvargbot.metricsCsv";
+
+    public static final long DEFAULT_ACTION_TIMEOUT_MILLIS = 1000;
+
+    private static final String CSV_HEADER = "time,bot,decisions,forced_folds,equity_samples,"
+            + "pre_flop_p99_ms,flop_p99_ms,turn_p99_ms,river_p99_ms,max_ms,timeout_ms\n";
+
+    private final String botName;
+    private final long actionTimeoutMillis;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Street.values().length];
+    private final AtomicLong forcedFolds = new AtomicLong();
+    private final AtomicLong equitySamples = new AtomicLong();
+    private ScheduledExecutorService reporter;
+
+    public DecisionMetrics(String botName, long actionTimeoutMillis) {
+        this.botName = botName;
+        this.actionTimeoutMillis = actionTimeoutMillis;
+        for (int i = 0; i < latencies.length; i++)
+            latencies[i] = new LatencyHistogram();
+    }
+
+    /**
+     * Metrics with the action timeout from {@value #TIMEOUT_PROPERTY}.
+     */
+    public DecisionMetrics(String botName) {
+        this(botName, Long.getLong(TIMEOUT_PROPERTY, DEFAULT_ACTION_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * Registers with JMX and starts reporting at the interval in
+     * {@value #INTERVAL_PROPERTY}, every minute by default.
+     */
+    public void publish() {
+        register();
+        long interval = Long.getLong(INTERVAL_PROPERTY, 60);
+        if (interval > 0)
+            startReporting(interval, System.getProperty(CSV_PROPERTY));
+    }
+
+    public void recordDecision(Street street, long nanos) {
+        latencies[street.ordinal()].record(nanos);
+    }
+
+    public void recordEquitySamples(long samples) {
+        equitySamples.addAndGet(samples);
+    }
+
+    public void recordForcedFold() {
+        forcedFolds.incrementAndGet();
+    }
+
+    public LatencyHistogram getLatency(Street street) {
+        return latencies[street.ordinal()];
+    }
+
+    @Override
+    public long getDecisions() {
+        long decisions = 0;
+        for (LatencyHistogram latency : latencies)
+            decisions += latency.getCount();
+        return decisions;
+    }
+
+    @Override
+    public long getForcedFolds() {
+        return forcedFolds.get();
+    }
+
+    @Override
+    public long getEquitySamples() {
+        return equitySamples.get();
+    }
+
+    @Override
+    public long getActionTimeoutMillis() {
+        return actionTimeoutMillis;
+    }
+
+    @Override
+    public double getPreFlopP99Millis() {
+        return p99Millis(Street.PRE_FLOP);
+    }
+
+    @Override
+    public double getFlopP99Millis() {
+        return p99Millis(Street.FLOP);
+    }
+
+    @Override
+    public double getTurnP99Millis() {
+        return p99Millis(Street.TURN);
+    }
+
+    @Override
+    public double getRiverP99Millis() {
+        return p99Millis(Street.RIVER);
+    }
+
+    @Override
+    public double getMaxDecisionMillis() {
+        long max = 0;
+        for (LatencyHistogram latency : latencies)
+            max = Math.max(max, latency.getMaxNanos());
+        return max / 1e6;
+    }
+
+    @Override
+    public String getSummary() {
+        return String.format("%s: %d decisions, p99 pre-flop %.1f ms, flop %.1f ms, turn %.1f ms, "
+                        + "river %.1f ms, max %.1f ms of %d ms timeout, %d forced folds, %d equity samples",
+                botName, getDecisions(), getPreFlopP99Millis(), getFlopP99Millis(), getTurnP99Millis(),
+                getRiverP99Millis(), getMaxDecisionMillis(), actionTimeoutMillis, getForcedFolds(),
+                getEquitySamples());
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram latency : latencies)
+            latency.reset();
+        forcedFolds.set(0);
+        equitySamples.set(0);
+    }
+
+    @Override
+    public boolean isTracing() {
+        return DecisionTracer.isEnabled();
+    }
+
+    @Override
+    public void setTracing(boolean tracing) {
+        DecisionTracer.setEnabled(tracing);
+    }
+
+    @Override
+    public long writeTrace(String file) {
+        return DecisionTracer.write(file);
+    }
+
+    private double p99Millis(Street street) {
+        return latencies[street.ordinal()].getPercentileNanos(99) / 1e6;
+    }
+
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(
+                    "se.cygni.texasholdem.player:type=DecisionMetrics,name=" + ObjectName.quote(botName)));
+        } catch (JMException e) {
+            log.warn("Could not register decision metrics for " + botName, e);
+        }
+    }
+
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(
+                    "se.cygni.texasholdem.player:type=DecisionMetrics,name=" + ObjectName.quote(botName)));
+        } catch (JMException e) {
+            log.debug("Decision metrics for {} were not registered", botName);
+        }
+    }
+
+    /**
+     * Logs the summary every {@code intervalSeconds} and appends a line to
+     * {@code csvFile} unless that is null.
+     */
+    public synchronized void startReporting(long intervalSeconds, final String csvFile) {
+        if (reporter != null)
+            return;
+        reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metrics-" + botName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                log.info(getSummary());
+                if (csvFile != null)
+                    appendCsv(csvFile);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdown();
+            reporter = null;
+        }
+    }
+
+    private void appendCsv(String csvFile) {
+        boolean header = !new File(csvFile).exists();
+        try (Writer writer = new FileWriter(csvFile, true)) {
+            if (header)
+                writer.write(CSV_HEADER);
+            writer.write(String.format(Locale.ROOT, "%d,%s,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d%n",
+                    System.currentTimeMillis(), botName, getDecisions(), getForcedFolds(), getEquitySamples(),
+                    getPreFlopP99Millis(), getFlopP99Millis(), getTurnP99Millis(), getRiverP99Millis(),
+                    getMaxDecisionMillis(), actionTimeoutMillis));
+        } catch (IOException e) {
+            log.warn("Could not write metrics to " + csvFile, e);
+        }
+    }
+}
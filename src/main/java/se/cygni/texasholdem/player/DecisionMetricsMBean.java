@@ -0,0 +1,37 @@
+package se.cygni.texasholdem.player;
+
+/**
+ * JMX view of {@link DecisionMetrics}. Latencies are in milliseconds.
+ */
+public interface DecisionMetricsMBean {
+
+    long getDecisions();
+
+    long getForcedFolds();
+
+    long getEquitySamples();
+
+    long getActionTimeoutMillis();
+
+    double getPreFlopP99Millis();
+
+    double getFlopP99Millis();
+
+    double getTurnP99Millis();
+
+    double getRiverP99Millis();
+
+    double getMaxDecisionMillis();
+
+    String getSummary();
+
+    void reset();
+
+    /** Whether decisions are traced, in every bot of this JVM. */
+    boolean isTracing();
+
+    void setTracing(boolean tracing);
+
+    /** Writes the decision trace to a Chrome trace file, returns the number of spans. */
+    long writeTrace(String file);
+}
@@ -0,0 +1,280 @@
+package se.cygni.texasholdem.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Nanosecond spans for the stages of a decision, written as a Chrome trace
+ * that chrome://tracing, Perfetto or speedscope show as a flame chart.
+ * <p/>
+ * Off unless {@value #FILE_PROPERTY} names a file, which the trace is then
+ * written to when the JVM exits; {@link #setEnabled(boolean)} and the
+ * decision metrics MBean switch it at runtime. While off a span costs a
+ * volatile read: {@link #begin()} returns 0 and ending a span that began
+ * at 0 does nothing.
+ * <p/>
+ * Each thread records into a ring of its own, so recording takes no lock.
+ * Rings start small and double up to as many spans as
+ * {@value #CAPACITY_PROPERTY} says; from then on the oldest spans are
+ * overwritten and recording allocates nothing. A thread's first span
+ * adopts the ring of a thread that has died, if there is one, so threads
+ * made per decision, e.g. virtual ones, share as many rings as were ever
+ * tracing at once. Spans recorded while a trace is being written may be
+ * left out of it.
+ */
+public final class DecisionTracer {
+
+    private static Logger log = LoggerFactory.getLogger(DecisionTracer.class);
+
+    public static final String FILE_PROPERTY = "kvargbot.trace";
+    public static final String CAPACITY_PROPERTY = "kvargbot.traceSpans";
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    public enum Stage {
+        DECISION("decision"),
+        STATE("state fetch"),
+        HAND("hand evaluation"),
+        ENUMERATION("enumeration"),
+        COMPARISON("comparison"),
+        ACTION("action selection"),
+        LOGGING("logging");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final int CAPACITY = Math.max(1, Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+    private static final long ORIGIN = System.nanoTime();
+    private static final AtomicLong THREADS = new AtomicLong();
+    private static final Queue<Spans> ALL_SPANS = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Spans> SPANS = new ThreadLocal<Spans>() {
+        @Override
+        protected Spans initialValue() {
+            Thread thread = Thread.currentThread();
+            for (Spans spans : ALL_SPANS) {
+                if (spans.adopt(thread))
+                    return spans;
+            }
+            Spans spans = new Spans(THREADS.incrementAndGet(), thread);
+            ALL_SPANS.add(spans);
+            return spans;
+        }
+    };
+
+    private static volatile boolean enabled;
+
+    static {
+        final String file = System.getProperty(FILE_PROPERTY);
+        if (file != null) {
+            enabled = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    write(file);
+                }
+            }, "trace-writer"));
+        }
+    }
+
+    private DecisionTracer() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        DecisionTracer.enabled = enabled;
+    }
+
+    /**
+     * @return the start of a span, 0 when tracing is off
+     */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a span of {@code stage} from {@code start}, unless that is 0.
+     *
+     * @return the end of the span, for the next stage to begin at, or 0
+     */
+    public static long end(Stage stage, long start) {
+        if (start == 0)
+            return 0;
+        long end = System.nanoTime();
+        SPANS.get().record(stage, start, end);
+        return end;
+    }
+
+    /**
+     * Forgets every span recorded so far.
+     */
+    public static void clear() {
+        for (Spans spans : ALL_SPANS)
+            spans.cleared = spans.recorded.get();
+    }
+
+    /**
+     * Writes the spans to {@code file} in the Chrome trace event format.
+     *
+     * @return the number of spans written, -1 if the file could not be written
+     */
+    public static long write(String file) {
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            long spans = writeChromeTrace(writer);
+            log.info("Wrote {} decision spans to {}", spans, file);
+            return spans;
+        } catch (IOException e) {
+            log.warn("Could not write the decision trace to " + file, e);
+            return -1;
+        }
+    }
+
+    /**
+     * @return the number of spans written
+     */
+    public static long writeChromeTrace(Writer writer) throws IOException {
+        long pid = processId();
+        long written = 0;
+        writer.write("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[");
+        boolean first = true;
+        for (Spans spans : ALL_SPANS) {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            writer.write(String.format(Locale.ROOT,
+                    "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":%d,\"tid\":%d,\"args\":{\"name\":\"%s\"}}",
+                    pid, spans.tid, spans.threadName.replace("\\", "\\\\").replace("\"", "\\\"")));
+            written += spans.write(writer, pid);
+        }
+        writer.write("\n]}\n");
+        return written;
+    }
+
+    private static long processId() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        try {
+            return Long.parseLong(name.substring(0, name.indexOf('@')));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A ring of spans: start, end and stage for each. Only the owning thread
+     * records, publishing each span by a lazy set of the count, and a grown
+     * ring before the span that needed it.
+     */
+    private static final class Spans {
+
+        private final long tid;
+        private final AtomicReference<WeakReference<Thread>> owner;
+        private volatile String threadName;
+        private volatile long[] ring = new long[3 * Math.min(INITIAL_CAPACITY, CAPACITY)];
+        private final AtomicLong recorded = new AtomicLong();
+        private volatile long cleared;
+
+        Spans(long tid, Thread thread) {
+            this.tid = tid;
+            this.owner = new AtomicReference<>(new WeakReference<>(thread));
+            this.threadName = thread.getName();
+        }
+
+        /**
+         * Takes this ring over for {@code thread} if its owner has died.
+         */
+        boolean adopt(Thread thread) {
+            WeakReference<Thread> current = owner.get();
+            Thread previous = current.get();
+            if (previous != null && previous.isAlive())
+                return false;
+            if (!owner.compareAndSet(current, new WeakReference<>(thread)))
+                return false;
+            threadName = thread.getName();
+            return true;
+        }
+
+        void record(Stage stage, long start, long end) {
+            long next = recorded.get();
+            long[] ring = this.ring;
+            int capacity = ring.length / 3;
+            if (next == capacity && capacity < CAPACITY) {
+                ring = Arrays.copyOf(ring, 3 * Math.min(2 * capacity, CAPACITY));
+                this.ring = ring;
+                capacity = ring.length / 3;
+            }
+            int slot = 3 * (int) (next % capacity);
+            ring[slot] = start;
+            ring[slot + 1] = end;
+            ring[slot + 2] = stage.ordinal();
+            recorded.lazySet(next + 1);
+        }
+
+        long write(Writer writer, long pid) throws IOException {
+            long last = recorded.get();
+            long[] ring = this.ring;
+            int capacity = ring.length / 3;
+            long first = Math.max(cleared, last - capacity);
+            long[] copy = new long[3 * (int) (last - first)];
+            for (long i = first; i < last; i++)
+                System.arraycopy(ring, 3 * (int) (i % capacity), copy, 3 * (int) (i - first), 3);
+            // the owner may have overwritten the oldest spans while they were copied
+            long valid = Math.max(first, recorded.get() - capacity + 1);
+
+            StringBuilder event = new StringBuilder(128);
+            for (long i = valid; i < last; i++) {
+                int slot = 3 * (int) (i - first);
+                event.setLength(0);
+                event.append(",\n{\"name\":\"").append(STAGES[(int) copy[slot + 2]].getLabel())
+                        .append("\",\"cat\":\"decision\",\"ph\":\"X\",\"ts\":");
+                appendMicros(event, copy[slot] - ORIGIN);
+                event.append(",\"dur\":");
+                appendMicros(event, copy[slot + 1] - copy[slot]);
+                event.append(",\"pid\":").append(pid).append(",\"tid\":").append(tid).append('}');
+                writer.append(event);
+            }
+            return last - valid;
+        }
+
+        /**
+         * Nanoseconds as microseconds with three decimals, as the format wants.
+         */
+        private static void appendMicros(StringBuilder event, long nanos) {
+            if (nanos < 0) {
+                event.append('-');
+                nanos = -nanos;
+            }
+            long fraction = nanos % 1000;
+            event.append(nanos / 1000).append('.');
+            if (fraction < 100)
+                event.append('0');
+            if (fraction < 10)
+                event.append('0');
+            event.append(fraction);
+        }
+    }
+}
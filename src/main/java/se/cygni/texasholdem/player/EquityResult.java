@@ -0,0 +1,49 @@
+package se.cygni.texasholdem.player;
+
+/**
+ * Outcome of an equity simulation: our expected share of the pot and how
+ * much work went into the estimate.
+ */
+public class EquityResult {
+
+    private final double equity;
+    private final double standardError;
+    private final long samples;
+    private final long elapsedNanos;
+
+    public EquityResult(double equity, double standardError, long samples, long elapsedNanos) {
+        this.equity = equity;
+        this.standardError = standardError;
+        this.samples = samples;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getEquity() {
+        return equity;
+    }
+
+    /**
+     * In the units of the equity, a fraction of the pot.
+     */
+    public double getStandardError() {
+        return standardError;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getSamplesPerMillisecond() {
+        return elapsedNanos == 0 ? 0 : samples * 1e6 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.3f (+-%.3f, %d samples, %.1f/ms)",
+                equity, 1.96 * standardError, samples, getSamplesPerMillisecond());
+    }
+}
@@ -0,0 +1,115 @@
+package se.cygni.texasholdem.player;
+
+/**
+ * Monte Carlo estimate of our share of the pot against a number of random
+ * opponent hands, dealing out the rest of the board as well.
+ * <p/>
+ * Runs until the deadline passes or the 95% confidence interval is narrower
+ * than the requested precision, whichever comes first. An instance keeps its
+ * own deck and random state and must not be shared between threads.
+ */
+public class EquitySimulator {
+
+    public static final double DEFAULT_PRECISION = 0.005;
+
+    private static final int MIN_SAMPLES = 1000;
+    private static final int CHECK_INTERVAL = 256;
+
+    private final int[] deck = new int[52];
+    private long seed;
+
+    public EquitySimulator() {
+        this(System.nanoTime());
+    }
+
+    public EquitySimulator(long seed) {
+        this.seed = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+    }
+
+    public EquityResult simulate(long myCards, long boardCards, int opponents, long deadlineNanos) {
+        return simulate(myCards, boardCards, opponents, deadlineNanos, DEFAULT_PRECISION, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param deadlineNanos {@link System#nanoTime()} at which to stop
+     * @param precision     stop once the 95% confidence interval is within this
+     *                      much of the equity, a fraction of the pot: 0.005 is
+     *                      half a percent of it
+     * @param maxSamples    hard cap on the number of deals
+     */
+    public EquityResult simulate(long myCards, long boardCards, int opponents,
+                                 long deadlineNanos, double precision, long maxSamples) {
+        long start = System.nanoTime();
+        opponents = Math.max(1, opponents);
+
+        long unseen = HandEvaluator.FULL_DECK & ~(myCards | boardCards);
+        int unseenCount = 0;
+        while (unseen != 0) {
+            deck[unseenCount++] = Long.numberOfTrailingZeros(unseen);
+            unseen &= unseen - 1;
+        }
+        int missingBoard = 5 - Long.bitCount(boardCards);
+        int needed = missingBoard + 2 * opponents;
+
+        double sum = 0, sumOfSquares = 0;
+        long samples = 0;
+        double limit = precision / 1.96;
+        while (samples < maxSamples) {
+            for (int i = 0; i < needed; i++) {
+                int pick = i + nextInt(unseenCount - i);
+                int card = deck[pick];
+                deck[pick] = deck[i];
+                deck[i] = card;
+            }
+
+            long board = boardCards;
+            for (int i = 0; i < missingBoard; i++)
+                board |= 1L << deck[i];
+
+            double share = showdownShare(HandEvaluator.evaluate(myCards | board), board, missingBoard, opponents);
+            sum += share;
+            sumOfSquares += share * share;
+            samples++;
+
+            if ((samples & (CHECK_INTERVAL - 1)) == 0) {
+                if (System.nanoTime() >= deadlineNanos)
+                    break;
+                if (samples >= MIN_SAMPLES && standardError(sum, sumOfSquares, samples) < limit)
+                    break;
+            }
+        }
+
+        double equity = samples == 0 ? 0 : sum / samples;
+        return new EquityResult(equity, standardError(sum, sumOfSquares, samples), samples,
+                System.nanoTime() - start);
+    }
+
+    private double showdownShare(int myRank, long board, int firstHoleCard, int opponents) {
+        int tied = 0;
+        for (int i = 0, card = firstHoleCard; i < opponents; i++, card += 2) {
+            int oppRank = HandEvaluator.evaluate(board | 1L << deck[card] | 1L << deck[card + 1]);
+            if (oppRank > myRank)
+                return 0;
+            if (oppRank == myRank)
+                tied++;
+        }
+        return 1.0 / (tied + 1);
+    }
+
+    private static double standardError(double sum, double sumOfSquares, long samples) {
+        if (samples < 2)
+            return 1;
+        double mean = sum / samples;
+        double variance = Math.max(0, sumOfSquares / samples - mean * mean);
+        return Math.sqrt(variance / samples);
+    }
+
+    private int nextInt(int bound) {
+        // xorshift64*
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        long random = seed * 0x2545F4914F6CDD1DL;
+        return (int) (((random >>> 32) * bound) >>> 32);
+    }
+}
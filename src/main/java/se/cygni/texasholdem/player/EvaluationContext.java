@@ -0,0 +1,108 @@
+package se.cygni.texasholdem.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The long lived, shareable parts of the evaluation: the thread pool,
+ * the preflop table, the hand strength cache and the executor that bots
+ * decide on.
+ */
+public class EvaluationContext {
+
+    private static Logger log = LoggerFactory.getLogger(EvaluationContext.class);
+
+    private static final int RANGE_STEPS = 100;
+
+    private final ParallelEvaluator evaluator;
+    private final PreflopTable preflopTable;
+    private final HandStrengthCache handStrengthCache;
+    private final DecisionExecutor decisionExecutor;
+    private final int[] handClassOrder;
+    private final OpponentRange[] topRanges = new OpponentRange[RANGE_STEPS + 1];
+
+    /**
+     * @param preflopTable      preflop equities, or null to use the Chen formula
+     * @param handStrengthCache cache for river hand strength, or null to always enumerate
+     */
+    public EvaluationContext(ParallelEvaluator evaluator, PreflopTable preflopTable,
+                             HandStrengthCache handStrengthCache) {
+        this(evaluator, preflopTable, handStrengthCache, null);
+    }
+
+    /**
+     * @param decisionExecutor where connected bots decide, or null to decide on the client thread
+     */
+    public EvaluationContext(ParallelEvaluator evaluator, PreflopTable preflopTable,
+                             HandStrengthCache handStrengthCache, DecisionExecutor decisionExecutor) {
+        this.evaluator = evaluator;
+        this.preflopTable = preflopTable;
+        this.handStrengthCache = handStrengthCache;
+        this.decisionExecutor = decisionExecutor;
+        this.handClassOrder = OpponentRange.handClassOrder(preflopTable);
+    }
+
+    /**
+     * Single threaded, without table or cache.
+     */
+    public static EvaluationContext basic() {
+        return new EvaluationContext(new ParallelEvaluator(1), null, null);
+    }
+
+    public static EvaluationContext fromSystemProperties() {
+        return new EvaluationContext(ParallelEvaluator.fromSystemProperties(),
+                PreflopTable.loadDefault(), HandStrengthCache.fromSystemProperties(),
+                DecisionExecutor.fromSystemProperties());
+    }
+
+    public ParallelEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public PreflopTable getPreflopTable() {
+        return preflopTable;
+    }
+
+    public HandStrengthCache getHandStrengthCache() {
+        return handStrengthCache;
+    }
+
+    public DecisionExecutor getDecisionExecutor() {
+        return decisionExecutor;
+    }
+
+    /**
+     * The best {@code fraction} of starting hands, rounded to whole percents so
+     * that each range is only built once.
+     */
+    public OpponentRange getTopRange(double fraction) {
+        int step = (int) Math.round(Math.max(0, Math.min(1, fraction)) * RANGE_STEPS);
+        OpponentRange range = topRanges[step];
+        if (range == null) {
+            // racing threads build equal ranges, either one may stay
+            range = OpponentRange.top(Math.max(1, step) / (double) RANGE_STEPS, handClassOrder);
+            topRanges[step] = range;
+        }
+        return range;
+    }
+
+    /**
+     * Stops the pools and saves the cache if a cache file is configured.
+     */
+    public void shutdown() {
+        evaluator.shutdown();
+        if (decisionExecutor != null)
+            decisionExecutor.shutdown();
+        File file = HandStrengthCache.getFile();
+        if (handStrengthCache != null && file != null) {
+            try {
+                handStrengthCache.save(file);
+            } catch (IOException e) {
+                log.warn("Could not save hand strength cache " + file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.game.Card;
+import se.cygni.texasholdem.game.Deck;
+
+import java.util.List;
+
+/**
+ * Allocation free evaluator for hands of five to seven cards.
+ * <p/>
+ * A set of cards is a long where card {@code suit * 13 + rank} is one bit,
+ * rank 0 being a deuce and rank 12 an ace. {@link #evaluate(long)} returns
+ * an int where a higher value is a better hand and equal values split the
+ * pot. The hand category sits above bit 20, followed by the five deciding
+ * ranks (pair rank, kickers, ...) with four bits each.
+ */
+public final class HandEvaluator {
+
+    public static final int HIGH_HAND = 0;
+    public static final int ONE_PAIR = 1;
+    public static final int TWO_PAIRS = 2;
+    public static final int THREE_OF_A_KIND = 3;
+    public static final int STRAIGHT = 4;
+    public static final int FLUSH = 5;
+    public static final int FULL_HOUSE = 6;
+    public static final int FOUR_OF_A_KIND = 7;
+    public static final int STRAIGHT_FLUSH = 8;
+
+    public static final long FULL_DECK = (1L << 52) - 1;
+
+    private static final int SUIT_MASK = 0x1FFF;
+    private static final int WHEEL = 0x100F;
+    private static final int CATEGORY_SHIFT = 20;
+
+    private static final Card[] CARDS = new Card[52];
+
+    static {
+        for (Card card : Deck.getOrderedListOfCards())
+            CARDS[index(card)] = card;
+    }
+
+    private HandEvaluator() {
+    }
+
+    public static int index(Card card) {
+        return card.getSuit().ordinal() * 13 + card.getRank().getOrderValue() - 2;
+    }
+
+    public static long mask(Card card) {
+        return 1L << index(card);
+    }
+
+    public static long mask(List<Card> cards) {
+        long mask = 0;
+        for (int i = 0; i < cards.size(); i++)
+            mask |= mask(cards.get(i));
+        return mask;
+    }
+
+    public static Card card(int index) {
+        return CARDS[index];
+    }
+
+    public static int category(int handRank) {
+        return handRank >>> CATEGORY_SHIFT;
+    }
+
+    public static int evaluate(long cards) {
+        int c = (int) (cards & SUIT_MASK);
+        int d = (int) ((cards >>> 13) & SUIT_MASK);
+        int h = (int) ((cards >>> 26) & SUIT_MASK);
+        int s = (int) ((cards >>> 39) & SUIT_MASK);
+
+        // with at most seven cards a flush rules out quads and full house
+        int flush = Integer.bitCount(c) >= 5 ? c
+                : Integer.bitCount(d) >= 5 ? d
+                : Integer.bitCount(h) >= 5 ? h
+                : Integer.bitCount(s) >= 5 ? s : 0;
+        if (flush != 0) {
+            int straightFlush = straightHigh(flush);
+            if (straightFlush >= 0)
+                return rank(STRAIGHT_FLUSH, straightFlush << 16);
+            return rank(FLUSH, kickers(flush, 5));
+        }
+
+        int ranks = c | d | h | s;
+        int quads = c & d & h & s;
+        if (quads != 0) {
+            int quad = highest(quads);
+            return rank(FOUR_OF_A_KIND, quad << 16 | highest(ranks & ~(1 << quad)) << 12);
+        }
+
+        int trips = (c & d & h) | (c & d & s) | (c & h & s) | (d & h & s);
+        int pairs = (c & d) | (c & h) | (c & s) | (d & h) | (d & s) | (h & s);
+        if (trips != 0) {
+            int trip = highest(trips);
+            int rest = pairs & ~(1 << trip);
+            if (rest != 0)
+                return rank(FULL_HOUSE, trip << 16 | highest(rest) << 12);
+        }
+
+        int straight = straightHigh(ranks);
+        if (straight >= 0)
+            return rank(STRAIGHT, straight << 16);
+
+        if (trips != 0) {
+            int trip = highest(trips);
+            return rank(THREE_OF_A_KIND, trip << 16 | kickers(ranks & ~(1 << trip), 2) >>> 4);
+        }
+
+        if (Integer.bitCount(pairs) >= 2) {
+            int high = highest(pairs);
+            int low = highest(pairs & ~(1 << high));
+            int kicker = highest(ranks & ~(1 << high) & ~(1 << low));
+            return rank(TWO_PAIRS, high << 16 | low << 12 | kicker << 8);
+        }
+
+        if (pairs != 0) {
+            int pair = highest(pairs);
+            return rank(ONE_PAIR, pair << 16 | kickers(ranks & ~(1 << pair), 3) >>> 4);
+        }
+
+        return rank(HIGH_HAND, kickers(ranks, 5));
+    }
+
+    private static int rank(int category, int ranks) {
+        return category << CATEGORY_SHIFT | ranks;
+    }
+
+    /**
+     * The highest {@code count} ranks packed four bits each, starting at bit 16.
+     */
+    private static int kickers(int ranks, int count) {
+        int packed = 0;
+        for (int shift = 16; count > 0 && ranks != 0; count--, shift -= 4) {
+            int top = highest(ranks);
+            packed |= top << shift;
+            ranks &= ~(1 << top);
+        }
+        return packed;
+    }
+
+    private static int straightHigh(int ranks) {
+        int runs = ranks & (ranks << 1) & (ranks << 2) & (ranks << 3) & (ranks << 4);
+        if (runs != 0)
+            return highest(runs);
+        if ((ranks & WHEEL) == WHEEL)
+            return 3;
+        return -1;
+    }
+
+    private static int highest(int bits) {
+        return 31 - Integer.numberOfLeadingZeros(bits);
+    }
+}
@@ -0,0 +1,480 @@
+package se.cygni.texasholdem.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+import se.cygni.texasholdem.game.Card;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes every hand a bot plays to a line per event history file.
+ * <p/>
+ * The event thread only copies a few fields into a preallocated ring of
+ * records; a background thread formats them and writes them to the file
+ * in batches, starting a new file when it grows too big. When the writer
+ * falls behind, records are dropped rather than blocking the bot.
+ * <p/>
+ * Lines start with a letter telling what they are, see {@link #HAND},
+ * {@link #PLAYER}, ... Fields are separated by single spaces. Cards are
+ * written as rank and suit, e.g. {@code Td}, and player names with
+ * {@code %}, space and line breaks percent escaped, see {@link #parseName}.
+ */
+public class HandHistoryRecorder {
+
+    private static Logger log = LoggerFactory.getLogger(HandHistoryRecorder.class);
+
+    public static final String DIRECTORY_PROPERTY = "kvargbot.historyDir";
+    public static final String MAX_BYTES_PROPERTY = "kvargbot.historyMaxBytes";
+    public static final String FILE_SUFFIX = ".hh";
+
+    /** {@code H <table id> <epoch millis>} starts a hand. */
+    public static final char HAND = 'H';
+    /** {@code P <player> <chips>} for each player in the hand. */
+    public static final char PLAYER = 'P';
+    /** {@code M <card>} a card dealt to us. */
+    public static final char MY_CARD = 'M';
+    /** {@code B <card>} a community card. */
+    public static final char BOARD_CARD = 'B';
+    /** {@code A <player> <action type> <amount>} anyone's action, blinds included. */
+    public static final char ACTION = 'A';
+    /** {@code Q <action type>:<amount> ...} the actions we could choose from. */
+    public static final char REQUEST = 'Q';
+    /** {@code Y <action type> <amount> <nanos>} what we chose and how long it took. */
+    public static final char RESPONSE = 'Y';
+    /** {@code S <player> <won> <cards...>} a hand at the showdown, no cards if folded. */
+    public static final char SHOW_DOWN = 'S';
+
+    static final String SMALL_BLIND = "SMALL_BLIND";
+    static final String BIG_BLIND = "BIG_BLIND";
+
+    private static final String RANKS = "23456789TJQKA";
+    private static final String SUITS = "cdhs";
+    private static final ActionType[] ACTION_TYPES = ActionType.values();
+
+    private static final int CAPACITY = 4096;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int ROTATED_FILES = 3;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private static final HandHistoryRecorder DISABLED = new Disabled();
+
+    private final File file;
+    private final long maxBytes;
+    private final Record[] ring;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running;
+
+    private HandHistoryRecorder() {
+        file = null;
+        maxBytes = 0;
+        ring = null;
+        writer = null;
+    }
+
+    public HandHistoryRecorder(File file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        ring = new Record[CAPACITY];
+        for (int i = 0; i < CAPACITY; i++)
+            ring[i] = new Record();
+        running = true;
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "hand-history-" + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * A recorder writing to {@code <player>.hh} in {@value #DIRECTORY_PROPERTY},
+     * or one that ignores everything when that property is not set.
+     */
+    public static HandHistoryRecorder fromSystemProperties(String player) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null)
+            return DISABLED;
+        long maxBytes = Long.getLong(MAX_BYTES_PROPERTY, 64L * 1024 * 1024);
+        return new HandHistoryRecorder(new File(directory, player + FILE_SUFFIX), maxBytes);
+    }
+
+    public static HandHistoryRecorder disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public synchronized void handStarted(long tableId) {
+        Record record = claim(HAND);
+        if (record != null) {
+            record.first = tableId;
+            record.second = System.currentTimeMillis();
+            publish();
+        }
+    }
+
+    public synchronized void player(String player, long chips) {
+        Record record = claim(PLAYER);
+        if (record != null) {
+            record.player = player;
+            record.first = chips;
+            publish();
+        }
+    }
+
+    public void myCard(Card card) {
+        card(MY_CARD, card);
+    }
+
+    public void boardCard(Card card) {
+        card(BOARD_CARD, card);
+    }
+
+    private synchronized void card(char kind, Card card) {
+        Record record = claim(kind);
+        if (record != null) {
+            record.first = HandEvaluator.index(card);
+            publish();
+        }
+    }
+
+    public void action(String player, ActionType type, long amount) {
+        action(player, type.name(), amount);
+    }
+
+    public synchronized void action(String player, String type, long amount) {
+        Record record = claim(ACTION);
+        if (record != null) {
+            record.player = player;
+            record.type = type;
+            record.first = amount;
+            publish();
+        }
+    }
+
+    public synchronized void request(List<Action> possibleActions) {
+        Record record = claim(REQUEST);
+        if (record != null) {
+            record.first = 0;
+            for (int i = 0; i < possibleActions.size(); i++) {
+                Action action = possibleActions.get(i);
+                record.first |= 1L << action.getActionType().ordinal();
+                record.amounts[action.getActionType().ordinal()] = action.getAmount();
+            }
+            publish();
+        }
+    }
+
+    public synchronized void response(Action action, long nanos) {
+        Record record = claim(RESPONSE);
+        if (record != null) {
+            record.type = action.getActionType().name();
+            record.first = action.getAmount();
+            record.second = nanos;
+            publish();
+        }
+    }
+
+    public synchronized void showDown(String player, long won, List<Card> cards) {
+        Record record = claim(SHOW_DOWN);
+        if (record != null) {
+            record.player = player;
+            record.first = won;
+            record.second = cards == null ? 0 : HandEvaluator.mask(cards);
+            publish();
+        }
+    }
+
+    /**
+     * Writes what is queued and stops the writer.
+     */
+    public void close() {
+        if (!isEnabled() || !running)
+            return;
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static String cardText(int index) {
+        return "" + RANKS.charAt(index % 13) + SUITS.charAt(index / 13);
+    }
+
+    /**
+     * @return the card index of text such as {@code Td}, or -1 if it is no card
+     */
+    public static int parseCard(CharSequence text) {
+        if (text.length() != 2)
+            return -1;
+        int rank = RANKS.indexOf(text.charAt(0));
+        int suit = SUITS.indexOf(text.charAt(1));
+        return rank < 0 || suit < 0 ? -1 : suit * 13 + rank;
+    }
+
+    /**
+     * @return a player name written by the recorder as it was
+     */
+    public static String parseName(String field) {
+        if (field.indexOf('%') < 0)
+            return field;
+        StringBuilder name = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '%' && i + 2 < field.length()) {
+                name.append((char) Integer.parseInt(field.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+
+    private static void appendName(StringBuilder line, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            switch (c) {
+                case '%':
+                    line.append("%25");
+                    break;
+                case ' ':
+                    line.append("%20");
+                    break;
+                case '\n':
+                    line.append("%0A");
+                    break;
+                case '\r':
+                    line.append("%0D");
+                    break;
+                default:
+                    line.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * The next free record, or null when disabled or when the ring is full.
+     * The caller holds the lock, fills the record in and calls {@link #publish()}.
+     * The writer never takes the lock.
+     */
+    private Record claim(char kind) {
+        if (ring == null)
+            return null;
+        long next = published.get();
+        if (next - consumed.get() >= CAPACITY) {
+            dropped.incrementAndGet();
+            return null;
+        }
+        Record record = ring[(int) (next % CAPACITY)];
+        record.kind = kind;
+        record.player = null;
+        record.type = null;
+        return record;
+    }
+
+    private void publish() {
+        published.lazySet(published.get() + 1);
+    }
+
+    private void write() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        StringBuilder line = new StringBuilder(128);
+        FileChannel channel = null;
+        long reportedDrops = 0;
+        try {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            channel = open();
+            while (true) {
+                boolean stopping = !running;
+                long available = published.get();
+                long next = consumed.get();
+                if (next == available) {
+                    if (stopping)
+                        break;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                for (; next < available; next++) {
+                    line.setLength(0);
+                    format(ring[(int) (next % CAPACITY)], line);
+                    if (buffer.remaining() < line.length() * 3)
+                        channel = flush(channel, buffer);
+                    buffer.put(line.toString().getBytes(StandardCharsets.UTF_8));
+                    consumed.lazySet(next + 1);
+                }
+                channel = flush(channel, buffer);
+                long drops = dropped.get();
+                if (drops != reportedDrops) {
+                    log.warn("Dropped {} hand history records, the writer can't keep up", drops - reportedDrops);
+                    reportedDrops = drops;
+                }
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            log.warn("Hand history to " + file + " stopped", e);
+            // keep accepting records so the bot is never blocked, and drop them
+            ringAbandoned();
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Could not close " + file, e);
+                }
+            }
+        }
+    }
+
+    private void ringAbandoned() {
+        while (running || consumed.get() != published.get()) {
+            consumed.lazySet(published.get());
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private FileChannel flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        if (channel.size() + buffer.remaining() > maxBytes && channel.size() > 0) {
+            channel.close();
+            rotate();
+            channel = open();
+        }
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+        return channel;
+    }
+
+    /**
+     * {@code x.hh} becomes {@code x.hh.1}, {@code x.hh.1} becomes {@code x.hh.2} and so on.
+     */
+    private void rotate() {
+        new File(file.getPath() + "." + ROTATED_FILES).delete();
+        for (int i = ROTATED_FILES - 1; i >= 1; i--)
+            new File(file.getPath() + "." + i).renameTo(new File(file.getPath() + "." + (i + 1)));
+        if (!file.renameTo(new File(file.getPath() + ".1")))
+            log.warn("Could not rotate {}", file);
+    }
+
+    private static void format(Record record, StringBuilder line) {
+        line.append(record.kind);
+        switch (record.kind) {
+            case HAND:
+                line.append(' ').append(record.first).append(' ').append(record.second);
+                break;
+            case PLAYER:
+                appendName(line.append(' '), record.player);
+                line.append(' ').append(record.first);
+                break;
+            case MY_CARD:
+            case BOARD_CARD:
+                line.append(' ').append(cardText((int) record.first));
+                break;
+            case ACTION:
+                appendName(line.append(' '), record.player);
+                line.append(' ').append(record.type).append(' ').append(record.first);
+                break;
+            case REQUEST:
+                for (int i = 0; i < ACTION_TYPES.length; i++) {
+                    if ((record.first & 1L << i) != 0)
+                        line.append(' ').append(ACTION_TYPES[i].name()).append(':').append(record.amounts[i]);
+                }
+                break;
+            case RESPONSE:
+                line.append(' ').append(record.type).append(' ').append(record.first)
+                        .append(' ').append(record.second);
+                break;
+            case SHOW_DOWN:
+                appendName(line.append(' '), record.player);
+                line.append(' ').append(record.first);
+                for (long cards = record.second; cards != 0; cards &= cards - 1)
+                    line.append(' ').append(cardText(Long.numberOfTrailingZeros(cards)));
+                break;
+        }
+        line.append('\n');
+    }
+
+    /**
+     * Ignores everything without taking the lock, so bots sharing it never
+     * wait for each other.
+     */
+    private static final class Disabled extends HandHistoryRecorder {
+
+        @Override
+        public void handStarted(long tableId) {
+        }
+
+        @Override
+        public void player(String player, long chips) {
+        }
+
+        @Override
+        public void myCard(Card card) {
+        }
+
+        @Override
+        public void boardCard(Card card) {
+        }
+
+        @Override
+        public void action(String player, String type, long amount) {
+        }
+
+        @Override
+        public void request(List<Action> possibleActions) {
+        }
+
+        @Override
+        public void response(Action action, long nanos) {
+        }
+
+        @Override
+        public void showDown(String player, long won, List<Card> cards) {
+        }
+    }
+
+    private static class Record {
+        char kind;
+        String player;
+        String type;
+        long first;
+        long second;
+        final long[] amounts = new long[ACTION_TYPES.length];
+    }
+}
@@ -0,0 +1,455 @@
+package se.cygni.texasholdem.player;
+
+import ch.qos.logback.classic.Level;
+import org.slf4j.LoggerFactory;
+import se.cygni.texasholdem.client.CurrentPlayState;
+import se.cygni.texasholdem.communication.message.event.*;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+import se.cygni.texasholdem.game.Card;
+import se.cygni.texasholdem.game.GamePlayer;
+import se.cygni.texasholdem.game.Player;
+import se.cygni.texasholdem.game.PlayerShowDown;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Plays recorded hand histories (see {@link HandHistoryRecorder}) through a
+ * fresh bot and compares its decisions with the recorded ones.
+ * <p/>
+ * Each file is memory mapped and replayed by one bot that sees the same
+ * events as the original through its own {@link CurrentPlayState}; files
+ * are replayed in parallel. Where a decision differs, the difference in
+ * expected chips is estimated with a pot odds model: our equity against
+ * random hands times the pot after the action, minus what the action puts
+ * in. Later betting and fold equity are ignored.
+ * <p/>
+ * Unless {@value TimeBudget#MAX_BUDGET_PROPERTY} says otherwise each
+ * decision may think for 2 ms, with the time budget's reserves for
+ * simulating and counting the river shrunk to fit.
+ */
+public class HandHistoryReplay {
+
+    private static final long EQUITY_SAMPLES = 2000;
+    private static final String DEFAULT_MAX_BUDGET_MILLIS = "2";
+    private static final long MIN_SIMULATION_NANOS = 100000L;
+    private static final long ENUMERATION_RESERVE_NANOS = 200000L;
+
+    private final EvaluationContext context;
+    private final long maxBudgetNanos;
+
+    public HandHistoryReplay(EvaluationContext context) {
+        this.context = context;
+        this.maxBudgetNanos = TimeBudget.maxBudgetNanos(DEFAULT_MAX_BUDGET_MILLIS);
+    }
+
+    /**
+     * Replays all history files in {@code directory}, rotated ones included.
+     */
+    public Summary replayDirectory(File directory) {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().contains(HandHistoryRecorder.FILE_SUFFIX);
+            }
+        });
+        if (files == null)
+            throw new IllegalArgumentException(directory + " is not a directory");
+        return replay(Arrays.asList(files));
+    }
+
+    public Summary replay(List<File> files) {
+        return files.parallelStream()
+                .map(new Function<File, Summary>() {
+                    @Override
+                    public Summary apply(File file) {
+                        try {
+                            return replay(file);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                })
+                .reduce(new Summary(), new BinaryOperator<Summary>() {
+                    @Override
+                    public Summary apply(Summary one, Summary two) {
+                        return new Summary().add(one).add(two);
+                    }
+                });
+    }
+
+    public Summary replay(File file) throws IOException {
+        String name = file.getName();
+        String botName = name.substring(0, name.lastIndexOf(HandHistoryRecorder.FILE_SUFFIX));
+        CurrentPlayState playState = new CurrentPlayState(botName);
+        // never record the replay, it could append to the very file being replayed
+        TimeBudget budget = new TimeBudget(DecisionMetrics.DEFAULT_ACTION_TIMEOUT_MILLIS, maxBudgetNanos,
+                MIN_SIMULATION_NANOS, ENUMERATION_RESERVE_NANOS);
+        Table table = new Table(botName, playState,
+                new KvargBot(botName, playState, context, HandHistoryRecorder.disabled(), budget));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] line = new byte[256];
+            int length = 0;
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b != '\n') {
+                    if (length == line.length)
+                        line = Arrays.copyOf(line, length * 2);
+                    line[length++] = b;
+                    continue;
+                }
+                table.line(new String(line, 0, length, StandardCharsets.UTF_8).split(" "));
+                length = 0;
+            }
+        }
+        table.endHand();
+        return table.summary;
+    }
+
+    /**
+     * Replays the hand histories in a directory:
+     * {@code HandHistoryReplay <directory>}.
+     */
+    public static void main(String... args) {
+        if (args.length != 1) {
+            System.err.println("Usage: HandHistoryReplay <hand history directory>");
+            System.exit(1);
+        }
+        org.slf4j.Logger botLogger = LoggerFactory.getLogger("se");
+        if (botLogger instanceof ch.qos.logback.classic.Logger)
+            ((ch.qos.logback.classic.Logger) botLogger).setLevel(Level.WARN);
+
+        // files are replayed in parallel already, so evaluation stays on the replaying thread
+        EvaluationContext context = new EvaluationContext(new ParallelEvaluator(1),
+                PreflopTable.loadDefault(), HandStrengthCache.fromSystemProperties());
+        long start = System.nanoTime();
+        Summary summary = new HandHistoryReplay(context).replayDirectory(new File(args[0]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d hands, %d decisions in %.1f s: %.0f decisions/s%n",
+                summary.hands, summary.decisions, seconds, summary.decisions / seconds);
+        System.out.println(summary);
+        context.shutdown();
+    }
+
+    /**
+     * One bot's view of the recorded table. The lines of a hand are
+     * collected until it is complete, since the blinds are only known
+     * after the hand has started.
+     */
+    private static class Table {
+        private final String botName;
+        private final CurrentPlayState playState;
+        private final Player state;
+        private final KvargBot bot;
+        private final List<String[]> hand = new ArrayList<>();
+        private final Map<String, Long> chips = new HashMap<>();
+        private final Summary summary = new Summary();
+        private final EquitySimulator simulator;
+
+        Table(String botName, CurrentPlayState playState, KvargBot bot) {
+            this.botName = botName;
+            this.playState = playState;
+            this.state = playState.getPlayerImpl();
+            this.bot = bot;
+            this.simulator = new EquitySimulator(botName.hashCode());
+        }
+
+        void line(String[] fields) {
+            if (fields[0].length() != 1)
+                return;
+            if (fields[0].charAt(0) == HandHistoryRecorder.HAND)
+                endHand();
+            else if (hand.isEmpty())
+                return; // a rotated file starts in the middle of a hand
+            char kind = fields[0].charAt(0);
+            if (fields.length > 1 && (kind == HandHistoryRecorder.PLAYER || kind == HandHistoryRecorder.ACTION
+                    || kind == HandHistoryRecorder.SHOW_DOWN))
+                fields[1] = HandHistoryRecorder.parseName(fields[1]);
+            hand.add(fields);
+        }
+
+        void endHand() {
+            if (hand.isEmpty())
+                return;
+            try {
+                replayHand();
+            } finally {
+                hand.clear();
+            }
+        }
+
+        private void replayHand() {
+            long tableId = Long.parseLong(hand.get(0)[1]);
+            long smallBlind = 0, bigBlind = 0;
+            List<GamePlayer> players = new ArrayList<>();
+            chips.clear();
+            for (String[] fields : hand) {
+                char kind = fields[0].charAt(0);
+                if (kind == HandHistoryRecorder.PLAYER) {
+                    chips.put(fields[1], Long.parseLong(fields[2]));
+                    players.add(SimulatedEvents.player(fields[1], Long.parseLong(fields[2])));
+                } else if (kind == HandHistoryRecorder.ACTION && HandHistoryRecorder.SMALL_BLIND.equals(fields[2])) {
+                    smallBlind = Long.parseLong(fields[3]);
+                } else if (kind == HandHistoryRecorder.ACTION && HandHistoryRecorder.BIG_BLIND.equals(fields[2])) {
+                    bigBlind = Long.parseLong(fields[3]);
+                }
+            }
+            if (players.isEmpty())
+                return;
+            // the dealer is not recorded, and the bot does not use it
+            send(SimulatedEvents.playIsStarted(players, smallBlind, bigBlind, players.get(0), tableId));
+            summary.hands++;
+
+            List<PlayerShowDown> showDowns = new ArrayList<>();
+            Action replayed = null;
+            double[] values = null;
+            for (String[] fields : hand) {
+                switch (fields[0].charAt(0)) {
+                    case HandHistoryRecorder.MY_CARD:
+                        send(SimulatedEvents.dealt(card(fields[1])));
+                        break;
+                    case HandHistoryRecorder.BOARD_CARD:
+                        send(SimulatedEvents.community(card(fields[1])));
+                        break;
+                    case HandHistoryRecorder.ACTION:
+                        action(fields[1], fields[2], Long.parseLong(fields[3]));
+                        break;
+                    case HandHistoryRecorder.REQUEST:
+                        List<Action> possible = new ArrayList<>();
+                        for (int i = 1; i < fields.length; i++) {
+                            int colon = fields[i].indexOf(':');
+                            possible.add(SimulatedEvents.action(ActionType.valueOf(fields[i].substring(0, colon)),
+                                    Long.parseLong(fields[i].substring(colon + 1))));
+                        }
+                        values = actionValues(possible);
+                        replayed = bot.actionRequired(SimulatedEvents.actionRequest(possible));
+                        break;
+                    case HandHistoryRecorder.RESPONSE:
+                        if (replayed != null)
+                            summary.decision(ActionType.valueOf(fields[1]), replayed.getActionType(), values);
+                        replayed = null;
+                        break;
+                    case HandHistoryRecorder.SHOW_DOWN:
+                        List<Card> cards = new ArrayList<>();
+                        for (int i = 3; i < fields.length; i++)
+                            cards.add(card(fields[i]));
+                        int handRank = cards.size() >= 5 ? HandEvaluator.evaluate(HandEvaluator.mask(cards)) : 0;
+                        showDowns.add(SimulatedEvents.showDown(player(fields[1]), cards, handRank,
+                                cards.isEmpty(), Long.parseLong(fields[2])));
+                        break;
+                }
+            }
+            if (!showDowns.isEmpty()) {
+                send(SimulatedEvents.showDown(showDowns));
+                for (PlayerShowDown showDown : showDowns) {
+                    if (botName.equals(showDown.getPlayer().getName()) && showDown.getWonAmount() > 0) {
+                        long won = showDown.getWonAmount();
+                        send(SimulatedEvents.wonAmount(won, chips.get(botName) + won));
+                    }
+                }
+            }
+        }
+
+        private void action(String player, String type, long amount) {
+            GamePlayer gamePlayer = player(player);
+            if (HandHistoryRecorder.SMALL_BLIND.equals(type)) {
+                send(SimulatedEvents.smallBlind(gamePlayer, amount));
+            } else if (HandHistoryRecorder.BIG_BLIND.equals(type)) {
+                send(SimulatedEvents.bigBlind(gamePlayer, amount));
+            } else {
+                switch (ActionType.valueOf(type)) {
+                    case FOLD:
+                        send(SimulatedEvents.folded(gamePlayer, amount));
+                        return;
+                    case CHECK:
+                        send(SimulatedEvents.checked(gamePlayer));
+                        return;
+                    case CALL:
+                        send(SimulatedEvents.called(gamePlayer, amount));
+                        break;
+                    case RAISE:
+                        send(SimulatedEvents.raised(gamePlayer, amount));
+                        break;
+                    case ALL_IN:
+                        send(SimulatedEvents.allIn(gamePlayer, amount));
+                        break;
+                }
+            }
+            Long left = chips.get(player);
+            if (left != null)
+                chips.put(player, left - amount);
+        }
+
+        /**
+         * Expected chips of each possible action by {@link ActionType} ordinal,
+         * from the equity we hold right now.
+         */
+        private double[] actionValues(List<Action> possible) {
+            long myCards = HandEvaluator.mask(playState.getMyCards());
+            long board = HandEvaluator.mask(playState.getCommunityCards());
+            int opponents = Math.max(1, playState.getNumberOfPlayers() - playState.getNumberOfFoldedPlayers() - 1);
+            double equity = simulator.simulate(myCards, board, opponents, Long.MAX_VALUE,
+                    EquitySimulator.DEFAULT_PRECISION, EQUITY_SAMPLES).getEquity();
+            long pot = playState.getPotTotal();
+            double[] values = new double[ActionType.values().length];
+            for (Action action : possible) {
+                long amount = action.getActionType() == ActionType.FOLD ? 0 : action.getAmount();
+                values[action.getActionType().ordinal()] = action.getActionType() == ActionType.FOLD
+                        ? 0 : equity * (pot + amount) - amount;
+            }
+            return values;
+        }
+
+        private GamePlayer player(String name) {
+            Long left = chips.get(name);
+            return SimulatedEvents.player(name, left == null ? 0 : left);
+        }
+
+        private static Card card(String text) {
+            int index = HandHistoryRecorder.parseCard(text);
+            if (index < 0)
+                throw new IllegalArgumentException("Not a card: " + text);
+            return HandEvaluator.card(index);
+        }
+
+        private void send(PlayIsStartedEvent event) {
+            state.onPlayIsStarted(event);
+            bot.onPlayIsStarted(event);
+        }
+
+        private void send(YouHaveBeenDealtACardEvent event) {
+            state.onYouHaveBeenDealtACard(event);
+            bot.onYouHaveBeenDealtACard(event);
+        }
+
+        private void send(CommunityHasBeenDealtACardEvent event) {
+            state.onCommunityHasBeenDealtACard(event);
+            bot.onCommunityHasBeenDealtACard(event);
+        }
+
+        private void send(PlayerBetSmallBlindEvent event) {
+            state.onPlayerBetSmallBlind(event);
+            bot.onPlayerBetSmallBlind(event);
+        }
+
+        private void send(PlayerBetBigBlindEvent event) {
+            state.onPlayerBetBigBlind(event);
+            bot.onPlayerBetBigBlind(event);
+        }
+
+        private void send(PlayerFoldedEvent event) {
+            state.onPlayerFolded(event);
+            bot.onPlayerFolded(event);
+        }
+
+        private void send(PlayerCheckedEvent event) {
+            state.onPlayerChecked(event);
+            bot.onPlayerChecked(event);
+        }
+
+        private void send(PlayerCalledEvent event) {
+            state.onPlayerCalled(event);
+            bot.onPlayerCalled(event);
+        }
+
+        private void send(PlayerRaisedEvent event) {
+            state.onPlayerRaised(event);
+            bot.onPlayerRaised(event);
+        }
+
+        private void send(PlayerWentAllInEvent event) {
+            state.onPlayerWentAllIn(event);
+            bot.onPlayerWentAllIn(event);
+        }
+
+        private void send(ShowDownEvent event) {
+            state.onShowDown(event);
+            bot.onShowDown(event);
+        }
+
+        private void send(YouWonAmountEvent event) {
+            state.onYouWonAmount(event);
+            bot.onYouWonAmount(event);
+        }
+    }
+
+    /**
+     * Totals over replayed decisions.
+     */
+    public static class Summary {
+        private long hands;
+        private long decisions;
+        private long differences;
+        private double valueDelta;
+        private final long[][] changes = new long[ActionType.values().length][ActionType.values().length];
+
+        void decision(ActionType recorded, ActionType replayed, double[] values) {
+            decisions++;
+            if (recorded == replayed)
+                return;
+            differences++;
+            changes[recorded.ordinal()][replayed.ordinal()]++;
+            valueDelta += values[replayed.ordinal()] - values[recorded.ordinal()];
+        }
+
+        Summary add(Summary other) {
+            hands += other.hands;
+            decisions += other.decisions;
+            differences += other.differences;
+            valueDelta += other.valueDelta;
+            for (int i = 0; i < changes.length; i++)
+                for (int k = 0; k < changes.length; k++)
+                    changes[i][k] += other.changes[i][k];
+            return this;
+        }
+
+        public long getHands() {
+            return hands;
+        }
+
+        public long getDecisions() {
+            return decisions;
+        }
+
+        public double getDifferenceRate() {
+            return decisions == 0 ? 0 : (double) differences / decisions;
+        }
+
+        /**
+         * Estimated chips won per decision by playing the replayed decisions instead.
+         */
+        public double getValueDeltaPerDecision() {
+            return decisions == 0 ? 0 : valueDelta / decisions;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(
+                    "%d of %d decisions differ (%.2f%%), EV delta %+.3f chips per decision",
+                    differences, decisions, 100 * getDifferenceRate(), getValueDeltaPerDecision()));
+            ActionType[] types = ActionType.values();
+            for (int i = 0; i < types.length; i++)
+                for (int k = 0; k < types.length; k++)
+                    if (changes[i][k] > 0)
+                        sb.append(String.format("%n  %-6s -> %-6s %d", types[i], types[k], changes[i][k]));
+            return sb.toString();
+        }
+    }
+}
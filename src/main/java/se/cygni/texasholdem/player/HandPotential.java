@@ -0,0 +1,207 @@
+package se.cygni.texasholdem.player;
+
+/**
+ * How our hand may change on the next one or two cards against a random
+ * opponent hand: the chance of getting ahead when behind now (positive
+ * potential) and of falling behind when ahead now (negative potential), as
+ * described by Billings et al. The effective hand strength combines them
+ * with the current hand strength.
+ * <p/>
+ * Counting enumerates opponent hands by the suit classes of
+ * {@link ParallelEvaluator#cardClasses(long, long, int)} against every
+ * runout of the coming cards, with our own rank for each runout evaluated
+ * only once.
+ */
+public final class HandPotential {
+
+    private static final int BEHIND = 0;
+    private static final int TIED = 1;
+    private static final int AHEAD = 2;
+
+    private final int lookahead;
+    private final double handStrength;
+    private final double positive;
+    private final double negative;
+    private final int outs;
+
+    HandPotential(int lookahead, double handStrength, double positive, double negative, int outs) {
+        this.lookahead = lookahead;
+        this.handStrength = handStrength;
+        this.positive = positive;
+        this.negative = negative;
+        this.outs = outs;
+    }
+
+    /**
+     * The number of cards looked ahead, one or two.
+     */
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    public double getHandStrength() {
+        return handStrength;
+    }
+
+    /**
+     * PPot: the chance that a hand we are behind or tied with now ends up behind us.
+     */
+    public double getPositivePotential() {
+        return positive;
+    }
+
+    /**
+     * NPot: the chance that a hand we are ahead of or tied with now ends up ahead of us.
+     */
+    public double getNegativePotential() {
+        return negative;
+    }
+
+    /**
+     * EHS: the hand strength we keep plus what the potential may add.
+     */
+    public double getEffectiveStrength() {
+        return handStrength * (1 - negative) + (1 - handStrength) * positive;
+    }
+
+    /**
+     * Unseen cards that would improve our hand to a better category by
+     * using our own cards, not just by improving the board.
+     */
+    public int getOuts() {
+        return outs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HS %.3f, PPot %.3f, NPot %.3f, EHS %.3f, %d outs",
+                handStrength, positive, negative, getEffectiveStrength(), outs);
+    }
+
+    static int outs(long myCards, long boardCards, long unseenCards) {
+        int category = HandEvaluator.category(HandEvaluator.evaluate(myCards | boardCards));
+        int outs = 0;
+        for (long cards = unseenCards; cards != 0; cards &= cards - 1) {
+            long card = Long.lowestOneBit(cards);
+            int improved = HandEvaluator.category(HandEvaluator.evaluate(myCards | boardCards | card));
+            if (improved > category
+                    && HandEvaluator.category(HandEvaluator.evaluate(boardCards | card)) < improved)
+                outs++;
+        }
+        return outs;
+    }
+
+    /**
+     * The boards after each way the next {@code lookahead} cards may come,
+     * with our rank on each.
+     */
+    static class Runouts {
+        final long[] cards;
+        final long[] boards;
+        final int[] myRanks;
+
+        Runouts(long myCards, long boardCards, long unseenCards, int lookahead) {
+            int unseen = Long.bitCount(unseenCards);
+            int count = lookahead == 1 ? unseen : unseen * (unseen - 1) / 2;
+            cards = new long[count];
+            int n = 0;
+            for (long first = unseenCards; first != 0; first &= first - 1) {
+                long card = Long.lowestOneBit(first);
+                if (lookahead == 1) {
+                    cards[n++] = card;
+                    continue;
+                }
+                for (long second = first & (first - 1); second != 0; second &= second - 1)
+                    cards[n++] = card | Long.lowestOneBit(second);
+            }
+            boards = new long[count];
+            myRanks = new int[count];
+            for (int i = 0; i < count; i++) {
+                boards[i] = boardCards | cards[i];
+                myRanks[i] = HandEvaluator.evaluate(myCards | boards[i]);
+            }
+        }
+    }
+
+    /**
+     * Opponent hands by where they stand against us now ({@code now}) and
+     * after the runouts ({@code transitions}, now times three plus then).
+     */
+    static class Counts {
+        final double[] now = new double[3];
+        final double[] transitions = new double[9];
+        final double[] totals = new double[3];
+
+        Counts add(Counts other) {
+            for (int i = 0; i < 3; i++) {
+                now[i] += other.now[i];
+                totals[i] += other.totals[i];
+            }
+            for (int i = 0; i < 9; i++)
+                transitions[i] += other.transitions[i];
+            return this;
+        }
+
+        HandPotential toPotential(int lookahead, int outs) {
+            double hands = now[AHEAD] + now[TIED] + now[BEHIND];
+            double strength = hands == 0 ? 0 : (now[AHEAD] + now[TIED] / 2) / hands;
+            double positiveBase = totals[BEHIND] + totals[TIED] / 2;
+            double negativeBase = totals[AHEAD] + totals[TIED] / 2;
+            double positive = positiveBase == 0 ? 0 : (transitions[BEHIND * 3 + AHEAD]
+                    + transitions[BEHIND * 3 + TIED] / 2 + transitions[TIED * 3 + AHEAD] / 2) / positiveBase;
+            double negative = negativeBase == 0 ? 0 : (transitions[AHEAD * 3 + BEHIND]
+                    + transitions[TIED * 3 + BEHIND] / 2 + transitions[AHEAD * 3 + TIED] / 2) / negativeBase;
+            return new HandPotential(lookahead, strength, positive, negative, outs);
+        }
+    }
+
+    /**
+     * Counts the opponent hands made of classes {@code a} in
+     * {@code [fromClass, toClass)} and {@code b >= a}, each class pair
+     * evaluated once per runout with the members the runout leaves.
+     */
+    static Counts count(int myRank, long boardCards, long[] classes, Runouts runouts,
+                        int fromClass, int toClass, Counts counts) {
+        for (int a = fromClass; a < toClass; a++) {
+            long first = classes[a];
+            for (int b = a; b < classes.length; b++) {
+                long second = classes[b];
+                long hands = hands(first, second, a == b);
+                if (hands == 0)
+                    continue;
+                int now = compare(myRank, HandEvaluator.evaluate(boardCards | representatives(first, second, a == b)));
+                counts.now[now] += hands;
+                for (int r = 0; r < runouts.cards.length; r++) {
+                    long left = ~runouts.cards[r];
+                    long firstLeft = first & left;
+                    long secondLeft = second & left;
+                    long runoutHands = hands(firstLeft, secondLeft, a == b);
+                    if (runoutHands == 0)
+                        continue;
+                    int oppRank = HandEvaluator.evaluate(runouts.boards[r]
+                            | representatives(firstLeft, secondLeft, a == b));
+                    counts.transitions[now * 3 + compare(runouts.myRanks[r], oppRank)] += runoutHands;
+                    counts.totals[now] += runoutHands;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static long hands(long first, long second, boolean sameClass) {
+        if (sameClass) {
+            int size = Long.bitCount(first);
+            return size * (size - 1) / 2;
+        }
+        return Long.bitCount(first) * Long.bitCount(second);
+    }
+
+    private static long representatives(long first, long second, boolean sameClass) {
+        long card = Long.lowestOneBit(first);
+        return card | Long.lowestOneBit(sameClass ? first & ~card : second);
+    }
+
+    private static int compare(int myRank, int oppRank) {
+        return myRank > oppRank ? AHEAD : myRank == oppRank ? TIED : BEHIND;
+    }
+}
@@ -0,0 +1,89 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.game.Card;
+
+import java.util.List;
+
+/**
+ * The value of a five to seven card hand as one int key from
+ * {@link HandEvaluator#evaluate(long)}: the category and all five deciding
+ * ranks, so the key is computed once per hand and two hands compare with a
+ * single integer compare. Equal keys split the pot.
+ */
+public final class HandRank implements Comparable<HandRank> {
+
+    private static final String[] CATEGORY_NAMES = {
+            "High hand", "One pair", "Two pairs", "Three of a kind", "Straight",
+            "Flush", "Full house", "Four of a kind", "Straight flush"
+    };
+    private static final String RANK_NAMES = "23456789TJQKA";
+    // how many of the five rank positions each category decides by
+    private static final int[] RANKS_USED = {5, 4, 3, 3, 1, 5, 2, 2, 1};
+
+    private final int key;
+
+    private HandRank(int key) {
+        this.key = key;
+    }
+
+    public static HandRank of(int key) {
+        return new HandRank(key);
+    }
+
+    public static HandRank of(long cards) {
+        return new HandRank(HandEvaluator.evaluate(cards));
+    }
+
+    public static HandRank of(List<Card> cards) {
+        return of(HandEvaluator.mask(cards));
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public int getCategory() {
+        return HandEvaluator.category(key);
+    }
+
+    /**
+     * The deciding ranks in order of importance, 0 being a deuce and 12 an
+     * ace: e.g. trips, then the two kickers. Unused positions are 0.
+     *
+     * @see #getRanksUsed()
+     */
+    public int getRank(int position) {
+        return key >>> (16 - 4 * position) & 0xF;
+    }
+
+    /**
+     * @return how many rank positions the category decides by, e.g. two for
+     * a full house and one for a straight
+     */
+    public int getRanksUsed() {
+        return RANKS_USED[getCategory()];
+    }
+
+    @Override
+    public int compareTo(HandRank other) {
+        return Integer.compare(key, other.key);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof HandRank && ((HandRank) other).key == key;
+    }
+
+    @Override
+    public int hashCode() {
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(CATEGORY_NAMES[getCategory()]).append(' ');
+        for (int i = 0; i < getRanksUsed(); i++)
+            sb.append(RANK_NAMES.charAt(getRank(i)));
+        return sb.toString();
+    }
+}
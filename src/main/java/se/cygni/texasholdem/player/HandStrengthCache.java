@@ -0,0 +1,173 @@
+package se.cygni.texasholdem.player;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Bounded cache of hand strength results keyed by hole cards and board.
+ * <p/>
+ * Hand strength does not change when suits are renamed, so the key is the
+ * smallest encoding over all 24 suit permutations and e.g. AhKh on a spade
+ * board shares its entry with AdKd on the same board in clubs. Entries are
+ * evicted least recently used first once the memory budget is reached.
+ */
+public class HandStrengthCache {
+
+    private static Logger log = LoggerFactory.getLogger(HandStrengthCache.class);
+
+    public static final String BUDGET_PROPERTY = "kvargbot.cacheBytes";
+    public static final String FILE_PROPERTY = "kvargbot.cacheFile";
+
+    public static final long DEFAULT_BUDGET_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Rough heap cost of one entry: the cache entry itself plus a boxed key and value.
+     */
+    static final int ENTRY_BYTES = 128;
+
+    private static final int[][] SUIT_PERMUTATIONS = permutations();
+
+    private final Cache<Long, Double> cache;
+
+    public HandStrengthCache(long budgetBytes) {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1, budgetBytes / ENTRY_BYTES))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * A cache sized by {@value #BUDGET_PROPERTY}, warmed from
+     * {@value #FILE_PROPERTY} when that is set.
+     */
+    public static HandStrengthCache fromSystemProperties() {
+        HandStrengthCache cache = new HandStrengthCache(Long.getLong(BUDGET_PROPERTY, DEFAULT_BUDGET_BYTES));
+        File file = getFile();
+        if (file != null && file.isFile()) {
+            try {
+                cache.load(file);
+            } catch (IOException e) {
+                log.warn("Could not load hand strength cache " + file, e);
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return the file named by {@value #FILE_PROPERTY}, or null
+     */
+    public static File getFile() {
+        String name = System.getProperty(FILE_PROPERTY);
+        return name == null ? null : new File(name);
+    }
+
+    /**
+     * @return the cached strength, or NaN on a miss
+     */
+    public double get(long key) {
+        Double strength = cache.getIfPresent(key);
+        return strength == null ? Double.NaN : strength;
+    }
+
+    public void put(long key, double strength) {
+        cache.put(key, strength);
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (Map.Entry<Long, Double> entry : cache.asMap().entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+        }
+        log.info("Saved {} hand strengths to {}", cache.size(), file);
+    }
+
+    public void load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                long key;
+                try {
+                    key = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                cache.put(key, in.readDouble());
+            }
+        }
+        log.info("Loaded {} hand strengths from {}", cache.size(), file);
+    }
+
+    /**
+     * The same key for every suit permutation of the cards. Hole cards take
+     * the low 12 bits, then six bits per board card and the board size on top.
+     */
+    public static long key(long holeCards, long boardCards) {
+        long best = Long.MAX_VALUE;
+        for (int[] permutation : SUIT_PERMUTATIONS) {
+            long key = pack(permute(holeCards, permutation), permute(boardCards, permutation));
+            if (key < best)
+                best = key;
+        }
+        return best;
+    }
+
+    private static long permute(long cards, int[] permutation) {
+        long permuted = 0;
+        for (int suit = 0; suit < 4; suit++)
+            permuted |= ((cards >>> (13 * suit)) & 0x1FFF) << (13 * permutation[suit]);
+        return permuted;
+    }
+
+    private static long pack(long holeCards, long boardCards) {
+        long key = Long.bitCount(boardCards);
+        for (long cards = boardCards; cards != 0; cards &= cards - 1)
+            key = key << 6 | Long.numberOfTrailingZeros(cards);
+        for (long cards = holeCards; cards != 0; cards &= cards - 1)
+            key = key << 6 | Long.numberOfTrailingZeros(cards);
+        return key;
+    }
+
+    private static int[][] permutations() {
+        int[][] permutations = new int[24][];
+        int n = 0;
+        for (int a = 0; a < 4; a++)
+            for (int b = 0; b < 4; b++)
+                for (int c = 0; c < 4; c++)
+                    if (a != b && a != c && b != c)
+                        permutations[n++] = new int[]{a, b, c, 6 - a - b - c};
+        return permutations;
+    }
+}
@@ -7,10 +7,10 @@ import se.cygni.texasholdem.client.PlayerClient;
 import se.cygni.texasholdem.communication.message.event.*;
 import se.cygni.texasholdem.communication.message.request.ActionRequest;
 import se.cygni.texasholdem.game.*;
-import se.cygni.texasholdem.game.definitions.PokerHand;
-import se.cygni.texasholdem.game.util.PokerHandUtil;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This is an example Poker bot player, you can use it as
@@ -28,22 +28,46 @@ import java.util.*;
  *      You can inspect the games you bot has played here:
  *      http://poker.cygni.se/showgame
  */
-public class KvargBot implements Player {
+public class KvargBot implements DecisionExecutor.TimedPlayer {
 
     private static Logger log = LoggerFactory.getLogger(KvargBot.class);
 
+    private static final long POTENTIAL_RESERVE_NANOS = 1000000L;
+
+    /**
+     * Players going all in are assumed to do so with this share of the hands they play.
+     */
+    private static final double ALL_IN_RANGE_SHARE = 0.5;
+    private static final double ALL_IN_PENALTY = 0.15;
+
+    static final String DEFAULT_NAME = "KVARGBOT-3000";
+
+    private final String name;
     private final String serverHost;
     private final int serverPort;
-    private final PlayerClient playerClient;
+    private volatile PlayerClient playerClient;
+    private volatile BotRunner runner;
+    private final CurrentPlayState offlinePlayState;
     private Action callAction;
     private Action checkAction;
     private Action raiseAction;
     private Action foldAction;
     private Action allInAction;
-    private CurrentPlayState playState;
-    private Hand myHand;
+    private PlayStateSnapshot playState;
+    private int myHandRank;
     private List<Card> boardCards;
     private Algorithms algorithms;
+    private final EvaluationContext context;
+    private final PreflopTable preflopTable;
+    private final DecisionMetrics metrics;
+    private final TimeBudget timeBudget;
+    private final OpponentStats opponentStats = new OpponentStats();
+    private final HandHistoryRecorder history;
+    private volatile Strategy strategy = ThresholdStrategy.DEFAULT;
+    private EquityResult lastEquity;
+    private long deadlineNanos;
+    private long bigBlind;
+    private ActionRequest recordedRequest;
 
     /**
      * Default constructor for a Java Poker Bot.
@@ -52,16 +76,98 @@ public class KvargBot implements Player {
      * @param serverPort port at which the poker server listens
      */
     public KvargBot(String serverHost, int serverPort) {
+        this(serverHost, serverPort, EvaluationContext.basic());
+    }
+
+    /**
+     * @param context the thread pool, tables and caches behind each decision
+     */
+    public KvargBot(String serverHost, int serverPort, EvaluationContext context) {
+        this(DEFAULT_NAME, serverHost, serverPort, context);
+    }
+
+    /**
+     * @param name unique name on the server
+     */
+    public KvargBot(String name, String serverHost, int serverPort, EvaluationContext context) {
+        this.name = name;
         this.serverHost = serverHost;
         this.serverPort = serverPort;
+        this.context = context;
+        this.preflopTable = context.getPreflopTable();
+        this.metrics = new DecisionMetrics(getName());
+        this.timeBudget = new TimeBudget(metrics.getActionTimeoutMillis());
+        this.offlinePlayState = null;
+        this.history = HandHistoryRecorder.fromSystemProperties(name);
+    }
 
-        // Initialize the player client
-        playerClient = new PlayerClient(this, serverHost, serverPort);
+    /**
+     * A bot without a server connection, for local tables. The play state
+     * is kept up to date by whoever delivers the events.
+     *
+     * @param name      unique name at the table
+     * @param playState the play state to decide from
+     */
+    public KvargBot(String name, CurrentPlayState playState, EvaluationContext context) {
+        this(name, playState, context, HandHistoryRecorder.fromSystemProperties(name));
+    }
+
+    KvargBot(String name, CurrentPlayState playState, EvaluationContext context, HandHistoryRecorder history) {
+        this(name, playState, context, history, new TimeBudget(
+                Long.getLong(DecisionMetrics.TIMEOUT_PROPERTY, DecisionMetrics.DEFAULT_ACTION_TIMEOUT_MILLIS)));
+    }
+
+    KvargBot(String name, CurrentPlayState playState, EvaluationContext context, HandHistoryRecorder history,
+             TimeBudget timeBudget) {
+        this.name = name;
+        this.serverHost = null;
+        this.serverPort = 0;
+        this.context = context;
+        this.preflopTable = context.getPreflopTable();
+        this.metrics = new DecisionMetrics(name);
+        this.timeBudget = timeBudget;
+        this.offlinePlayState = playState;
+        this.history = history;
     }
 
     public void playATrainingGame() throws Exception {
-        playerClient.connect();
-        playerClient.registerForPlay(Room.TRAINING);
+        WarmUp.run(context);
+        play(Room.TRAINING);
+    }
+
+    /**
+     * Connects and registers for play in {@code room}. Every call uses a new
+     * client, so this also reconnects after the connection was lost. With a
+     * {@link DecisionExecutor} in the context the client calls the bot through it.
+     * A client that connected but failed to register is disconnected again.
+     */
+    public void play(Room room) throws Exception {
+        if (serverHost == null)
+            throw new IllegalStateException(name + " has no server connection");
+        DecisionExecutor executor = context.getDecisionExecutor();
+        Player player = executor == null ? this : executor.isolate(this, timeBudget);
+        PlayerClient client = new PlayerClient(player, serverHost, serverPort);
+        playerClient = client;
+        client.connect();
+        try {
+            client.registerForPlay(room);
+        } catch (Exception e) {
+            client.disconnect();
+            throw e;
+        }
+    }
+
+    public void disconnect() {
+        PlayerClient client = playerClient;
+        if (client != null)
+            client.disconnect();
+    }
+
+    /**
+     * The runner to tell when the connection is lost, or null to just log it.
+     */
+    void setRunner(BotRunner runner) {
+        this.runner = runner;
     }
 
     /**
@@ -70,15 +176,44 @@ public class KvargBot implements Player {
      * @param args
      */
     public static void main(String... args) {
-        KvargBot bot = new KvargBot("poker.cygni.se", 4711);
+        final EvaluationContext context = EvaluationContext.fromSystemProperties();
+        final BotRunner runner = new BotRunner("poker.cygni.se", 4711, Room.TRAINING, context);
+        runner.addBot(DEFAULT_NAME);
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                runner.shutdown();
+                context.shutdown();
+            }
+        });
+        runner.start();
+    }
 
-        try {
-            bot.playATrainingGame();
+    public DecisionMetrics getMetrics() {
+        return metrics;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
-        }
+    public OpponentStats getOpponentStats() {
+        return opponentStats;
+    }
+
+    TimeBudget getTimeBudget() {
+        return timeBudget;
+    }
+
+    public HandHistoryRecorder getHistory() {
+        return history;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Takes effect from the next decision.
+     */
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
     }
 
     /**
@@ -89,7 +224,7 @@ public class KvargBot implements Player {
      */
     @Override
     public String getName() {
-        return "KVARGBOT-3000";
+        return name;
     }
 
     /**
@@ -117,15 +252,66 @@ public class KvargBot implements Player {
      */
     @Override
     public Action actionRequired(ActionRequest request) {
+        return decide(request, snapshot(), System.nanoTime(), new AtomicBoolean());
+    }
 
+    @Override
+    public Callable<Action> prepare(final ActionRequest request, final long arrivalNanos,
+                                    final AtomicBoolean answered) {
+        final PlayStateSnapshot state = snapshot();
+        return new Callable<Action>() {
+            @Override
+            public Action call() {
+                return decide(request, state, arrivalNanos, answered);
+            }
+        };
+    }
+
+    private PlayStateSnapshot snapshot() {
+        CurrentPlayState state = offlinePlayState != null ? offlinePlayState : playerClient.getCurrentPlayState();
+        return PlayStateSnapshot.of(name, state);
+    }
+
+    /**
+     * Decides from {@code state} within the budget left since
+     * {@code arrivalNanos}. The answer goes into the history only if it is
+     * the one sent, i.e. if no fallback took {@code answered} first.
+     */
+    private Action decide(ActionRequest request, PlayStateSnapshot state, long arrivalNanos, AtomicBoolean answered) {
+
+        long decision = DecisionTracer.begin();
+        deadlineNanos = timeBudget.deadline(arrivalNanos);
+        history.request(request.getPossibleActions());
+        recordedRequest = request;
+        playState = state;
         Action response = getBestAction(request);
-        log.info("I'm going to {} {}",
-                response.getActionType(),
-                response.getAmount() > 0 ? "with " + response.getAmount() : "");
+        long elapsed = System.nanoTime() - arrivalNanos;
+        metrics.recordDecision(Street.fromBoardSize(boardCards.size()), elapsed);
+        long logging = DecisionTracer.begin();
+        if (answered.compareAndSet(false, true)) {
+            history.response(response, elapsed);
+            timeBudget.actionSent();
+            log.info("I'm going to {} {}",
+                    response.getActionType(),
+                    response.getAmount() > 0 ? "with " + response.getAmount() : "");
+        } else {
+            log.info("Decided to {} after a fallback was sent", response.getActionType());
+        }
+        DecisionTracer.end(DecisionTracer.Stage.LOGGING, logging);
+        DecisionTracer.end(DecisionTracer.Stage.DECISION, decision);
 
         return response;
     }
 
+    @Override
+    public void fallbackSent(ActionRequest request, Action fallback, long nanos) {
+        if (recordedRequest != request)
+            history.request(request.getPossibleActions());
+        recordedRequest = null;
+        history.response(fallback, nanos);
+        log.info("A fallback {} was sent for me", fallback.getActionType());
+    }
+
     /**
      * A helper method that returns this bots idea of the best action.
      * Note! This is just an example, you need to add your own smartness
@@ -136,11 +322,15 @@ public class KvargBot implements Player {
      * @return
      */
     private Action getBestAction(ActionRequest request) {
+        long span = DecisionTracer.begin();
         setPossibleActions(request);
-        playState = playerClient.getCurrentPlayState();
         boardCards = playState.getCommunityCards();
-        algorithms = new Algorithms(playState);
+        span = DecisionTracer.end(DecisionTracer.Stage.STATE, span);
+        if (algorithms == null)
+            algorithms = new Algorithms(context);
+        algorithms.sync(playState.getMyCards(), boardCards);
         setMyHand();
+        DecisionTracer.end(DecisionTracer.Stage.HAND, span);
 
         if (boardCards.size() == 0) // pre-flop
             return preFlop();
@@ -155,51 +345,132 @@ public class KvargBot implements Player {
     }
 
     private Action preFlop() {
-    	double chenScore = algorithms.chenFormula();
-    	if(chenScore > 11 && raiseAction != null)
-    		return raiseAction;
-    	else if (chenScore >= 7 && callAction != null)
-    		return callAction;
-        else if (getNumberOfOpponents() == 1 && chenScore >= 3 && callAction != null)
-            return callAction;
-        return checkAction != null ? checkAction : foldAction;
+        long span = DecisionTracer.begin();
+        Strategy.Move move;
+        if (preflopTable == null) {
+            move = strategy.preFlopByChen(algorithms.chenFormula(), getNumberOfOpponents());
+        } else {
+            int opponents = Math.max(1, getNumberOfOpponents());
+            double strength = algorithms.getPreflopStrength(preflopTable, opponents);
+            span = DecisionTracer.end(DecisionTracer.Stage.ENUMERATION, span);
+            move = strategy.preFlop(strength, opponents);
+        }
+        span = DecisionTracer.end(DecisionTracer.Stage.COMPARISON, span);
+        Action action = toAction(move);
+        DecisionTracer.end(DecisionTracer.Stage.ACTION, span);
+        return action;
     }
 
     private Action flop() {
-        return river();
+        return postFlop(Street.FLOP);
     }
 
     private Action turn() {
-        return river();
+        return postFlop(Street.TURN);
     }
 
     private Action river() {
-        double handStrength = algorithms.getHandStrength();
-        handStrength += getChenHandScoreAdjustment();
-        if (someoneIsAllIn())
-            handStrength -= 0.15;
-        if (handStrength > 0.9 && allInAction != null)
-            return allIn(handStrength);
-        if (handStrength > 0.7 && raiseAction != null)
-            return raiseAction;
-        if (getNumberOfOpponents() == 1)
-            handStrength += 0.2;
-        if (handStrength > 0.5 && callAction != null)
-            return callAction;
-        return checkAction != null ? checkAction : foldAction;
-    }
-
-    private double getChenHandScoreAdjustment () {
-        double chenScore = algorithms.chenFormula();
-        if (chenScore > 15)
-            return 0.15;
-        if (chenScore > 11)
-            return 0.1;
-        if (chenScore > 7)
-            return 0;
-        if (chenScore > 0)
-            return -0.1;
-        return -0.2;
+        return postFlop(Street.RIVER);
+    }
+
+    /**
+     * Starts from the preflop strength and refines it for as long as the
+     * deadline allows: an exact count against all remaining opponents on the
+     * river, otherwise a simulation of the rest of the hand against them.
+     * Multi-way equity is scaled to the heads up strength that the
+     * strategy's thresholds are tuned for.
+     */
+    private double getStrength(Street street) {
+        int opponents = Math.max(1, getNumberOfOpponents());
+        long remaining = deadlineNanos - System.nanoTime();
+        if (street == Street.RIVER && remaining > timeBudget.getEnumerationReserveNanos())
+            return opponents == 1 ? algorithms.getHandStrength()
+                    : Algorithms.headsUpStrength(algorithms.getRiverEquity(opponents), opponents);
+        if (remaining < timeBudget.getMinSimulationNanos()) {
+            log.debug("Out of time on the {}, using the preflop strength", street);
+            return algorithms.getPreflopStrength(preflopTable, opponents);
+        }
+
+        // the river only gets here when short on time: sample hand strength instead
+        int simulated = street == Street.RIVER ? 1 : opponents;
+        EquityResult equity = algorithms.getEquity(simulated, deadlineNanos);
+        log.debug("Equity against {} opponents: {}", simulated, equity);
+        if (equity != lastEquity)
+            metrics.recordEquitySamples(equity.getSamples());
+        lastEquity = equity;
+        return Algorithms.headsUpStrength(equity.getEquity(), simulated);
+    }
+
+    /**
+     * The strategy decides how much we are willing to put in; of the actions
+     * within that, the one with the most expected chips is taken. When the
+     * strategy folds, a call is still made if the pot odds pay for it.
+     */
+    private Action postFlop(Street street) {
+        long span = DecisionTracer.begin();
+        // the range count first: a river short of time is simulated right up to the deadline
+        double penalty = getAllInPenalty(street);
+        double handStrength = getStrength(street) - penalty;
+        span = DecisionTracer.end(DecisionTracer.Stage.ENUMERATION, span);
+        int opponents = getNumberOfOpponents();
+        Strategy.Move move = strategy.postFlop(handStrength, algorithms.chenFormula(),
+                HandEvaluator.category(myHandRank), opponents, hasMostChips());
+        span = DecisionTracer.end(DecisionTracer.Stage.COMPARISON, span);
+        ActionEvaluator values = getActionValues(Algorithms.potShare(handStrength, Math.max(1, opponents)));
+        Action action;
+        if (move == Strategy.Move.FOLD && callAction != null
+                && (values.value(callAction) > 0 || hasDrawingOdds()))
+            action = callAction;
+        else
+            action = values.best(toAction(move), checkAction, foldAction, callAction, raiseAction, allInAction);
+        DecisionTracer.end(DecisionTracer.Stage.ACTION, span);
+        return action;
+    }
+
+    /**
+     * Stacks are what each player has behind, i.e. less what they already
+     * put in this hand. We owe the biggest investment less ours, also when
+     * no call is on offer because all we can do is go all in for less.
+     * Fixed limit: each street after this one may add a bet of two big
+     * blinds from everyone.
+     */
+    private ActionEvaluator getActionValues(double equity) {
+        long[] opponentChips = new long[playState.getOpponentCount()];
+        int opponents = 0;
+        long biggestInvestment = 0;
+        for (int i = 0; i < playState.getOpponentCount(); i++) {
+            if (!playState.hasOpponentFolded(i)) {
+                long investment = playState.getOpponentInvestment(i);
+                opponentChips[opponents++] = Math.max(0, playState.getOpponentChips(i) - investment);
+                biggestInvestment = Math.max(biggestInvestment, investment);
+            }
+        }
+        long myInvestment = playState.getMyInvestmentInPot();
+        int streetsLeft = 5 - boardCards.size();
+        ActionEvaluator values = new ActionEvaluator(equity, playState.getPotTotal(),
+                Math.max(0, biggestInvestment - myInvestment),
+                Math.max(0, playState.getMyCurrentChipAmount() - myInvestment),
+                Arrays.copyOf(opponentChips, opponents), 2 * bigBlind * streetsLeft);
+        if (log.isDebugEnabled() && callAction != null)
+            log.debug("Equity {}, call worth {}", equity, values.value(callAction));
+        return values;
+    }
+
+    /**
+     * Heads up on the flop or turn, a draw is worth a call when the next card
+     * gets us ahead more often than the pot odds ask for.
+     */
+    private boolean hasDrawingOdds () {
+        if (boardCards.size() >= 5 || getNumberOfOpponents() != 1
+                || deadlineNanos - System.nanoTime() < POTENTIAL_RESERVE_NANOS)
+            return false;
+        long span = DecisionTracer.begin();
+        HandPotential potential = algorithms.getHandPotential(1);
+        DecisionTracer.end(DecisionTracer.Stage.ENUMERATION, span);
+        long toCall = callAction.getAmount();
+        double potOdds = toCall / (double) (playState.getPotTotal() + toCall);
+        log.debug("{}, pot odds {}", potential, potOdds);
+        return potential.getPositivePotential() > potOdds;
     }
 
     private int getNumberOfOpponents () {
@@ -207,28 +478,63 @@ public class KvargBot implements Player {
     }
 
     private void setMyHand() {
-        PokerHandUtil ourUtil = new PokerHandUtil(boardCards, playState.getMyCards());
-        myHand = ourUtil.getBestHand();
+        myHandRank = algorithms.getMyHandRank();
     }
 
-    private boolean someoneIsAllIn () {
-        for (GamePlayer player : playState.getPlayers())
-            if (playState.hasPlayerGoneAllIn(player))
-                return true;
-        return false;
+    /**
+     * How much worse we do against the hands an all in opponent is likely to
+     * hold than against any two cards. The tightest all in player decides.
+     * The count compares hand strengths on the board as it is, which only
+     * matches the strength it is taken from on the river; before that, and
+     * when there is no time left to count, a flat penalty is used.
+     */
+    private double getAllInPenalty (Street street) {
+        double fraction = 1;
+        for (int i = 0; i < playState.getOpponentCount(); i++) {
+            if (playState.hasOpponentGoneAllIn(i))
+                fraction = Math.min(fraction,
+                        opponentStats.getRangeFraction(playState.getOpponentName(i)) * ALL_IN_RANGE_SHARE);
+        }
+        if (fraction >= 1)
+            return 0;
+        if (street != Street.RIVER || deadlineNanos - System.nanoTime() < timeBudget.getEnumerationReserveNanos())
+            return ALL_IN_PENALTY;
+        OpponentRange range = context.getTopRange(fraction);
+        double penalty = algorithms.getHandStrength() - algorithms.getHandStrength(range);
+        log.debug("All in range {}, penalty {}", range, penalty);
+        return penalty;
     }
 
-    private Action allIn (double handStrength) {
-        if(myHand.getPokerHand().getOrderValue() < PokerHand.THREE_OF_A_KIND.getOrderValue())
-            return raiseAction;
-        if (handStrength > 0.95)
-            return allInAction;
+    private boolean hasMostChips () {
         long myChips = playState.getMyCurrentChipAmount();
-        for (GamePlayer player : playState.getPlayers()) {
-            if (!getName().equals(player.getName()) && player.getChipCount() > myChips)
-                return raiseAction; // we don't have the most chips... all in seems unsafe
+        for (int i = 0; i < playState.getOpponentCount(); i++) {
+            if (playState.getOpponentChips(i) > myChips)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The strategy's move, or the next more careful one when it is not on
+     * offer. Raising is not always on offer, e.g. once the raise cap is reached.
+     */
+    private Action toAction (Strategy.Move move) {
+        switch (move) {
+            case ALL_IN:
+                if (allInAction != null)
+                    return allInAction;
+            case RAISE:
+            case RAISE_OR_ALL_IN:
+                if (raiseAction != null)
+                    return raiseAction;
+            case CALL:
+                if (callAction != null)
+                    return callAction;
+            default:
+                if (checkAction != null)
+                    return checkAction;
+                return move == Strategy.Move.RAISE_OR_ALL_IN && allInAction != null ? allInAction : foldAction;
         }
-        return allInAction;
     }
 
     /**
@@ -250,6 +556,11 @@ public class KvargBot implements Player {
 
     @Override
     public void onPlayIsStarted(final PlayIsStartedEvent event) {
+        algorithms = new Algorithms(context);
+        opponentStats.startHand(event.getPlayers());
+        history.handStarted(event.getTableId());
+        for (GamePlayer player : event.getPlayers())
+            history.player(player.getName(), player.getChipCount());
         //log.debug("Play is started");
     }
 
@@ -261,6 +572,10 @@ public class KvargBot implements Player {
 
     @Override
     public void onYouHaveBeenDealtACard(final YouHaveBeenDealtACardEvent event) {
+        if (algorithms == null)
+            algorithms = new Algorithms(context);
+        algorithms.addMyCard(event.getCard());
+        history.myCard(event.getCard());
 
         //log.debug("I, {}, got a card: {}", getName(), event.getCard());
     }
@@ -268,24 +583,33 @@ public class KvargBot implements Player {
     @Override
     public void onCommunityHasBeenDealtACard(
             final CommunityHasBeenDealtACardEvent event) {
+        if (algorithms != null)
+            algorithms.addCommunityCard(event.getCard());
+        opponentStats.communityCardDealt();
+        history.boardCard(event.getCard());
 
         //log.debug("Community got a card: {}", event.getCard());
     }
 
     @Override
     public void onPlayerBetBigBlind(PlayerBetBigBlindEvent event) {
+        bigBlind = event.getBigBlind();
+        history.action(event.getPlayer().getName(), HandHistoryRecorder.BIG_BLIND, event.getBigBlind());
 
         //log.debug("{} placed big blind with amount {}", event.getPlayer().getName(), event.getBigBlind());
     }
 
     @Override
     public void onPlayerBetSmallBlind(PlayerBetSmallBlindEvent event) {
+        history.action(event.getPlayer().getName(), HandHistoryRecorder.SMALL_BLIND, event.getSmallBlind());
 
         //log.debug("{} placed small blind with amount {}", event.getPlayer().getName(), event.getSmallBlind());
     }
 
     @Override
     public void onPlayerFolded(final PlayerFoldedEvent event) {
+        acknowledgeIfMine(event.getPlayer());
+        history.action(event.getPlayer().getName(), ActionType.FOLD, event.getInvestmentInPot());
 
         //log.debug("{} folded after putting {} in the pot", event.getPlayer().getName(), event.getInvestmentInPot());
     }
@@ -293,23 +617,36 @@ public class KvargBot implements Player {
     @Override
     public void onPlayerForcedFolded(PlayerForcedFoldedEvent event) {
 
-        //log.debug("NOT GOOD! {} was forced to fold after putting {} in the pot because exceeding the time limit", event.getPlayer().getName(), event.getInvestmentInPot());
+        if (getName().equals(event.getPlayer().getName())) {
+            metrics.recordForcedFold();
+            log.warn("NOT GOOD! {} was forced to fold after putting {} in the pot because exceeding the time limit", event.getPlayer().getName(), event.getInvestmentInPot());
+        }
     }
 
     @Override
     public void onPlayerCalled(final PlayerCalledEvent event) {
+        acknowledgeIfMine(event.getPlayer());
+        opponentStats.called(event.getPlayer().getName());
+        history.action(event.getPlayer().getName(), ActionType.CALL, event.getCallBet());
 
         //log.debug("{} called with amount {}", event.getPlayer().getName(), event.getCallBet());
     }
 
     @Override
     public void onPlayerRaised(final PlayerRaisedEvent event) {
+        acknowledgeIfMine(event.getPlayer());
+        opponentStats.raised(event.getPlayer().getName());
+        history.action(event.getPlayer().getName(), ActionType.RAISE, event.getRaiseBet());
 
         //log.debug("{} raised with bet {}", event.getPlayer().getName(), event.getRaiseBet());
     }
 
     @Override
     public void onTableIsDone(TableIsDoneEvent event) {
+        if (log.isDebugEnabled()) {
+            for (GamePlayer player : event.getPlayers())
+                log.debug(opponentStats.describe(player.getName()));
+        }
 
         //log.debug("Table is done, I'm leaving the table with ${}", playerClient.getCurrentPlayState().getMyCurrentChipAmount());
         //log.info("Ending poker session, the last game may be viewed at: http://{}/showgame/table/{}", serverHost, playerClient.getCurrentPlayState().getTableId());
@@ -317,12 +654,17 @@ public class KvargBot implements Player {
 
     @Override
     public void onPlayerWentAllIn(final PlayerWentAllInEvent event) {
+        acknowledgeIfMine(event.getPlayer());
+        opponentStats.wentAllIn(event.getPlayer().getName());
+        history.action(event.getPlayer().getName(), ActionType.ALL_IN, event.getAllInAmount());
 
         //log.debug("{} went all in with amount {}", event.getPlayer().getName(), event.getAllInAmount());
     }
 
     @Override
     public void onPlayerChecked(final PlayerCheckedEvent event) {
+        acknowledgeIfMine(event.getPlayer());
+        history.action(event.getPlayer().getName(), ActionType.CHECK, 0);
 
         //log.debug("{} checked", event.getPlayer().getName());
     }
@@ -336,6 +678,18 @@ public class KvargBot implements Player {
     @Override
     public void onShowDown(final ShowDownEvent event) {
 
+        List<PlayerShowDown> showDowns = event.getPlayersShowDown();
+        HandRank[] ranks = new HandRank[showDowns.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            Hand hand = showDowns.get(i).getHand();
+            history.showDown(showDowns.get(i).getPlayer().getName(), showDowns.get(i).getWonAmount(),
+                    hand.isFolded() ? null : hand.getCards());
+            if (hand.isFolded() || hand.getCards().size() < 5)
+                continue;
+            ranks[i] = HandRank.of(hand.getCards());
+            opponentStats.showedDown(showDowns.get(i).getPlayer().getName(), ranks[i].getKey());
+        }
+
         if (!log.isInfoEnabled()) {
             return;
         }
@@ -345,11 +699,13 @@ public class KvargBot implements Player {
 
         sb.append("ShowDown:\n");
 
-        for (final PlayerShowDown psd : event.getPlayersShowDown()) {
-            formatter.format("%-13s won: %6s  hand: %-15s ",
+        for (int i = 0; i < ranks.length; i++) {
+            final PlayerShowDown psd = showDowns.get(i);
+            formatter.format("%-13s won: %6s  hand: %-15s %-21s",
                     psd.getPlayer().getName(),
                     psd.getHand().isFolded() ? "Fold" : psd.getWonAmount(),
-                    psd.getHand().getPokerHand().getName());
+                    psd.getHand().getPokerHand().getName(),
+                    ranks[i] != null ? ranks[i] : "");
 
             sb.append(" cards: | ");
             for (final Card card : psd.getHand().getCards()) {
@@ -370,8 +726,13 @@ public class KvargBot implements Player {
     @Override
     public void connectionToGameServerLost() {
 
-        log.debug("Lost connection to game server, exiting");
-        System.exit(0);
+        BotRunner runner = this.runner;
+        if (runner == null) {
+            log.warn("{} lost the connection to the game server", getName());
+            return;
+        }
+        log.info("{} lost the connection to the game server, reconnecting", getName());
+        runner.connectionLost(this);
     }
 
     @Override
@@ -387,6 +748,11 @@ public class KvargBot implements Player {
 
 
 
+    private void acknowledgeIfMine(GamePlayer player) {
+        if (getName().equals(player.getName()))
+            timeBudget.actionAcknowledged();
+    }
+
     private void setPossibleActions(ActionRequest request) {
         callAction = null;
         checkAction = null;
@@ -0,0 +1,473 @@
+package se.cygni.texasholdem.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.cygni.texasholdem.client.CurrentPlayState;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+import se.cygni.texasholdem.game.Card;
+import se.cygni.texasholdem.game.GamePlayer;
+import se.cygni.texasholdem.game.Player;
+import se.cygni.texasholdem.game.PlayerShowDown;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An in-process stand-in for a table on the poker server.
+ * <p/>
+ * Deals from a seeded deck and sends every seat the same sequence of
+ * events the server would: play started, blinds, cards, action requests,
+ * showdown and finally table done. Raises are fixed at one big blind
+ * before the turn and two after, with at most four per betting round, and
+ * side pots are split like on the server. A player that answers with an
+ * action it was not offered, throws, or exceeds the action timeout is
+ * forced to fold. Busted seats buy in again so a table can run any number
+ * of hands; results are reported as chips won net of buy-ins.
+ */
+public class LocalTable {
+
+    private static Logger log = LoggerFactory.getLogger(LocalTable.class);
+
+    private static final int MAX_RAISES = 4;
+
+    private final long tableId;
+    private final Random random;
+    private final long startingChips;
+    private final long smallBlind;
+    private final long bigBlind;
+    private final long actionTimeoutNanos;
+    private final List<Seat> seats = new ArrayList<>();
+    private final int[] deck = new int[52];
+    private int nextCard;
+    private long boardCards;
+    private int dealer;
+    private long handsPlayed;
+
+    public LocalTable(long tableId, long seed, long startingChips, long bigBlind, long actionTimeoutMillis) {
+        this.tableId = tableId;
+        this.random = new Random(seed);
+        this.startingChips = startingChips;
+        this.smallBlind = bigBlind / 2;
+        this.bigBlind = bigBlind;
+        this.actionTimeoutNanos = actionTimeoutMillis * 1000000L;
+        for (int i = 0; i < deck.length; i++)
+            deck[i] = i;
+    }
+
+    /**
+     * Seats a player named after the label, the table and the seat number.
+     */
+    public Seat addSeat(String label, PlayerFactory factory) {
+        String name = label + "-" + tableId + "-" + seats.size();
+        CurrentPlayState playState = new CurrentPlayState(name);
+        Seat seat = new Seat(label, name, factory.create(name, playState), playState.getPlayerImpl());
+        seat.chips = startingChips;
+        seats.add(seat);
+        return seat;
+    }
+
+    public List<Seat> getSeats() {
+        return Collections.unmodifiableList(seats);
+    }
+
+    public long getHandsPlayed() {
+        return handsPlayed;
+    }
+
+    public void play(int hands) {
+        if (seats.size() < 2)
+            throw new IllegalStateException("A table needs at least two players");
+        for (int i = 0; i < hands; i++) {
+            for (Seat seat : seats) {
+                if (seat.chips == 0) {
+                    seat.chips = startingChips;
+                    seat.buyIns++;
+                }
+            }
+            playHand();
+            dealer = (dealer + 1) % seats.size();
+            handsPlayed++;
+        }
+        final List<GamePlayer> players = gamePlayers();
+        for (Seat seat : seats) {
+            seat.playState.onTableIsDone(SimulatedEvents.tableIsDone(tableId, players));
+            seat.player.onTableIsDone(SimulatedEvents.tableIsDone(tableId, players));
+        }
+    }
+
+    private void playHand() {
+        int n = seats.size();
+        for (Seat seat : seats)
+            seat.newHand();
+        shuffle();
+
+        List<GamePlayer> players = gamePlayers();
+        GamePlayer dealerPlayer = players.get(dealer);
+        for (Seat seat : seats) {
+            seat.playState.onPlayIsStarted(SimulatedEvents.playIsStarted(players, smallBlind, bigBlind, dealerPlayer, tableId));
+            seat.player.onPlayIsStarted(SimulatedEvents.playIsStarted(players, smallBlind, bigBlind, dealerPlayer, tableId));
+        }
+
+        int small = n == 2 ? dealer : (dealer + 1) % n;
+        int big = (small + 1) % n;
+        postBlind(seats.get(small), smallBlind, true);
+        postBlind(seats.get(big), bigBlind, false);
+
+        for (Seat seat : seats) {
+            for (int i = 0; i < 2; i++) {
+                int card = deck[nextCard++];
+                seat.holeCards |= 1L << card;
+                Card dealt = HandEvaluator.card(card);
+                seat.playState.onYouHaveBeenDealtACard(SimulatedEvents.dealt(dealt));
+                seat.player.onYouHaveBeenDealtACard(SimulatedEvents.dealt(dealt));
+            }
+        }
+
+        bettingRound((big + 1) % n, bigBlind);
+        dealCommunityCards(3, bigBlind);
+        dealCommunityCards(1, 2 * bigBlind);
+        dealCommunityCards(1, 2 * bigBlind);
+        showDown();
+    }
+
+    private void shuffle() {
+        for (int i = deck.length - 1; i > 0; i--) {
+            int pick = random.nextInt(i + 1);
+            int card = deck[pick];
+            deck[pick] = deck[i];
+            deck[i] = card;
+        }
+        nextCard = 0;
+        boardCards = 0;
+    }
+
+    private void postBlind(Seat seat, long amount, boolean small) {
+        long posted = bet(seat, amount);
+        GamePlayer player = seat.gamePlayer();
+        for (Seat other : seats) {
+            if (small) {
+                other.playState.onPlayerBetSmallBlind(SimulatedEvents.smallBlind(player, posted));
+                other.player.onPlayerBetSmallBlind(SimulatedEvents.smallBlind(player, posted));
+            } else {
+                other.playState.onPlayerBetBigBlind(SimulatedEvents.bigBlind(player, posted));
+                other.player.onPlayerBetBigBlind(SimulatedEvents.bigBlind(player, posted));
+            }
+        }
+    }
+
+    private void dealCommunityCards(int count, long raiseSize) {
+        if (countInHand() < 2)
+            return;
+        for (Seat seat : seats)
+            seat.roundBet = 0;
+        for (int i = 0; i < count; i++) {
+            int card = deck[nextCard++];
+            boardCards |= 1L << card;
+            Card dealt = HandEvaluator.card(card);
+            for (Seat seat : seats) {
+                seat.playState.onCommunityHasBeenDealtACard(SimulatedEvents.community(dealt));
+                seat.player.onCommunityHasBeenDealtACard(SimulatedEvents.community(dealt));
+            }
+        }
+        if (countCanAct() > 1)
+            bettingRound((dealer + 1) % seats.size(), raiseSize);
+    }
+
+    private void bettingRound(int firstToAct, long raiseSize) {
+        long highest = 0;
+        for (Seat seat : seats)
+            highest = Math.max(highest, seat.roundBet);
+
+        int raises = 0;
+        int pending = countCanAct();
+        for (int i = firstToAct; pending > 0 && countInHand() > 1; i = (i + 1) % seats.size()) {
+            Seat seat = seats.get(i);
+            if (!seat.canAct())
+                continue;
+            long toCall = highest - seat.roundBet;
+            Action action = requestAction(seat, toCall, raiseSize, raises < MAX_RAISES);
+            GamePlayer player = seat.gamePlayer();
+            pending--;
+            if (action == null) {
+                seat.folded = true;
+                seat.forcedFolds++;
+                for (Seat other : seats) {
+                    other.playState.onPlayerForcedFolded(SimulatedEvents.forcedFolded(player, seat.handBet));
+                    other.player.onPlayerForcedFolded(SimulatedEvents.forcedFolded(player, seat.handBet));
+                }
+                continue;
+            }
+
+            switch (action.getActionType()) {
+                case FOLD:
+                    seat.folded = true;
+                    for (Seat other : seats) {
+                        other.playState.onPlayerFolded(SimulatedEvents.folded(player, seat.handBet));
+                        other.player.onPlayerFolded(SimulatedEvents.folded(player, seat.handBet));
+                    }
+                    break;
+                case CHECK:
+                    for (Seat other : seats) {
+                        other.playState.onPlayerChecked(SimulatedEvents.checked(player));
+                        other.player.onPlayerChecked(SimulatedEvents.checked(player));
+                    }
+                    break;
+                case CALL:
+                    bet(seat, action.getAmount());
+                    for (Seat other : seats) {
+                        other.playState.onPlayerCalled(SimulatedEvents.called(player, action.getAmount()));
+                        other.player.onPlayerCalled(SimulatedEvents.called(player, action.getAmount()));
+                    }
+                    break;
+                case RAISE:
+                    bet(seat, action.getAmount());
+                    highest = seat.roundBet;
+                    raises++;
+                    pending = countCanAct() - 1;
+                    for (Seat other : seats) {
+                        other.playState.onPlayerRaised(SimulatedEvents.raised(player, action.getAmount()));
+                        other.player.onPlayerRaised(SimulatedEvents.raised(player, action.getAmount()));
+                    }
+                    break;
+                case ALL_IN:
+                    long amount = bet(seat, seat.chips);
+                    if (seat.roundBet > highest) {
+                        highest = seat.roundBet;
+                        pending = countCanAct();
+                    }
+                    for (Seat other : seats) {
+                        other.playState.onPlayerWentAllIn(SimulatedEvents.allIn(player, amount));
+                        other.player.onPlayerWentAllIn(SimulatedEvents.allIn(player, amount));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return the chosen action, or null if the player must be forced to fold
+     */
+    private Action requestAction(Seat seat, long toCall, long raiseSize, boolean mayRaise) {
+        List<Action> possible = new ArrayList<>(4);
+        possible.add(SimulatedEvents.action(ActionType.FOLD, 0));
+        if (toCall == 0)
+            possible.add(SimulatedEvents.action(ActionType.CHECK, 0));
+        else if (seat.chips > toCall)
+            possible.add(SimulatedEvents.action(ActionType.CALL, toCall));
+        if (mayRaise && seat.chips > toCall + raiseSize)
+            possible.add(SimulatedEvents.action(ActionType.RAISE, toCall + raiseSize));
+        possible.add(SimulatedEvents.action(ActionType.ALL_IN, seat.chips));
+
+        long start = System.nanoTime();
+        Action response;
+        try {
+            response = seat.player.actionRequired(SimulatedEvents.actionRequest(possible));
+        } catch (RuntimeException e) {
+            log.warn(seat.name + " failed to act", e);
+            response = null;
+        }
+        long elapsed = System.nanoTime() - start;
+        seat.decisions++;
+        seat.decisionNanos += elapsed;
+        if (response == null || elapsed > actionTimeoutNanos)
+            return null;
+
+        for (Action action : possible) {
+            if (action.getActionType() == response.getActionType() && action.getAmount() == response.getAmount())
+                return action;
+        }
+        return null;
+    }
+
+    private long bet(Seat seat, long amount) {
+        amount = Math.min(amount, seat.chips);
+        seat.chips -= amount;
+        seat.roundBet += amount;
+        seat.handBet += amount;
+        if (seat.chips == 0)
+            seat.allIn = true;
+        return amount;
+    }
+
+    private void showDown() {
+        int n = seats.size();
+        long pot = 0;
+        for (Seat seat : seats) {
+            pot += seat.handBet;
+            if (!seat.folded)
+                seat.handRank = HandEvaluator.evaluate(seat.holeCards | boardCards);
+        }
+
+        // split the pot in layers, each won by the best hand among those who paid into it
+        long level = 0;
+        long paidOut = 0;
+        Seat lastWinner = null;
+        while (true) {
+            long nextLevel = Long.MAX_VALUE;
+            for (Seat seat : seats)
+                if (!seat.folded && seat.handBet > level)
+                    nextLevel = Math.min(nextLevel, seat.handBet);
+            if (nextLevel == Long.MAX_VALUE)
+                break;
+
+            long layer = 0;
+            int bestRank = -1, winners = 0;
+            for (Seat seat : seats) {
+                layer += Math.min(seat.handBet, nextLevel) - Math.min(seat.handBet, level);
+                if (!seat.folded && seat.handBet >= nextLevel) {
+                    if (seat.handRank > bestRank) {
+                        bestRank = seat.handRank;
+                        winners = 1;
+                    } else if (seat.handRank == bestRank) {
+                        winners++;
+                    }
+                }
+            }
+            long remainder = layer % winners;
+            for (int i = 1; i <= n; i++) {
+                Seat seat = seats.get((dealer + i) % n);
+                if (!seat.folded && seat.handBet >= nextLevel && seat.handRank == bestRank) {
+                    long share = layer / winners + remainder;
+                    remainder = 0;
+                    seat.won += share;
+                    lastWinner = seat;
+                }
+            }
+            paidOut += layer;
+            level = nextLevel;
+        }
+        if (lastWinner != null)
+            lastWinner.won += pot - paidOut;
+
+        List<PlayerShowDown> showDowns = new ArrayList<>(n);
+        for (Seat seat : seats) {
+            seat.chips += seat.won;
+            List<Card> cards = seat.folded ? Collections.<Card>emptyList() : cards(seat.holeCards | boardCards);
+            showDowns.add(SimulatedEvents.showDown(seat.gamePlayer(), cards, seat.handRank, seat.folded, seat.won));
+        }
+        for (Seat seat : seats) {
+            seat.playState.onShowDown(SimulatedEvents.showDown(showDowns));
+            seat.player.onShowDown(SimulatedEvents.showDown(showDowns));
+            if (seat.won > 0) {
+                seat.playState.onYouWonAmount(SimulatedEvents.wonAmount(seat.won, seat.chips));
+                seat.player.onYouWonAmount(SimulatedEvents.wonAmount(seat.won, seat.chips));
+            }
+        }
+    }
+
+    private static List<Card> cards(long cards) {
+        List<Card> list = new ArrayList<>(Long.bitCount(cards));
+        for (; cards != 0; cards &= cards - 1)
+            list.add(HandEvaluator.card(Long.numberOfTrailingZeros(cards)));
+        return list;
+    }
+
+    private List<GamePlayer> gamePlayers() {
+        List<GamePlayer> players = new ArrayList<>(seats.size());
+        for (Seat seat : seats)
+            players.add(seat.gamePlayer());
+        return players;
+    }
+
+    private int countInHand() {
+        int count = 0;
+        for (Seat seat : seats)
+            if (!seat.folded)
+                count++;
+        return count;
+    }
+
+    private int countCanAct() {
+        int count = 0;
+        for (Seat seat : seats)
+            if (seat.canAct())
+                count++;
+        return count;
+    }
+
+    /**
+     * A player at the table and the running totals for it.
+     */
+    public static class Seat {
+        private final String label;
+        private final String name;
+        private final Player player;
+        private final Player playState;
+
+        private long chips;
+        private long buyIns;
+        private long decisions;
+        private long decisionNanos;
+        private long forcedFolds;
+
+        private long holeCards;
+        private long roundBet;
+        private long handBet;
+        private long won;
+        private int handRank;
+        private boolean folded;
+        private boolean allIn;
+
+        Seat(String label, String name, Player player, Player playState) {
+            this.label = label;
+            this.name = name;
+            this.player = player;
+            this.playState = playState;
+        }
+
+        private void newHand() {
+            holeCards = 0;
+            roundBet = 0;
+            handBet = 0;
+            won = 0;
+            handRank = 0;
+            folded = false;
+            allIn = false;
+        }
+
+        private boolean canAct() {
+            return !folded && !allIn;
+        }
+
+        private GamePlayer gamePlayer() {
+            return SimulatedEvents.player(name, chips);
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Player getPlayer() {
+            return player;
+        }
+
+        public long getChips() {
+            return chips;
+        }
+
+        public long getBuyIns() {
+            return buyIns;
+        }
+
+        public long getDecisions() {
+            return decisions;
+        }
+
+        public long getDecisionNanos() {
+            return decisionNanos;
+        }
+
+        public long getForcedFolds() {
+            return forcedFolds;
+        }
+    }
+}
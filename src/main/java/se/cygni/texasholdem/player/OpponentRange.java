@@ -0,0 +1,119 @@
+package se.cygni.texasholdem.player;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A weight for each of the 1326 two card hands an opponent may hold. Hand
+ * {@code (low, high)} with card indexes {@code low < high} is found at
+ * {@code high * (high - 1) / 2 + low}.
+ * <p/>
+ * Ranges are built once and shared, so they must not be modified.
+ */
+public final class OpponentRange {
+
+    public static final int COMBINATIONS = 52 * 51 / 2;
+
+    private static final OpponentRange UNIFORM = new OpponentRange(null);
+
+    private final float[] weights;
+
+    private OpponentRange(float[] weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * Every hand equally likely.
+     */
+    public static OpponentRange uniform() {
+        return UNIFORM;
+    }
+
+    /**
+     * The best {@code fraction} of all starting hands, best first according to
+     * {@code handClassOrder}. The class straddling the cut gets a partial weight.
+     */
+    public static OpponentRange top(double fraction, int[] handClassOrder) {
+        if (fraction >= 1)
+            return UNIFORM;
+        // 1 for classes fully in range, the last class in only partly
+        float[] classWeights = new float[PreflopTable.HAND_CLASSES];
+        double left = fraction * COMBINATIONS;
+        for (int i = 0; i < handClassOrder.length && left > 0; i++) {
+            int combinations = combinations(handClassOrder[i]);
+            classWeights[handClassOrder[i]] = (float) Math.min(1, left / combinations);
+            left -= combinations;
+        }
+        float[] weights = new float[COMBINATIONS];
+        for (int high = 1; high < 52; high++)
+            for (int low = 0; low < high; low++)
+                weights[index(low, high)] = classWeights[PreflopTable.handClass(low, high)];
+        return new OpponentRange(weights);
+    }
+
+    public static int index(int low, int high) {
+        return high * (high - 1) / 2 + low;
+    }
+
+    public boolean isUniform() {
+        return weights == null;
+    }
+
+    public double getWeight(int low, int high) {
+        return weights == null ? 1 : weights[index(low, high)];
+    }
+
+    /**
+     * The weights in {@link #index(int, int)} order, or null when uniform.
+     */
+    float[] getWeights() {
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        if (weights == null)
+            return "OpponentRange[uniform]";
+        double total = 0;
+        for (float weight : weights)
+            total += weight;
+        return String.format("OpponentRange[%.1f%%]", 100 * total / COMBINATIONS);
+    }
+
+    private static int combinations(int handClass) {
+        int row = handClass / 13;
+        int column = handClass % 13;
+        return row == column ? 6 : row < column ? 4 : 12;
+    }
+
+    /**
+     * Hand classes best first by their heads up preflop equity, or by Chen
+     * score without a table.
+     */
+    public static int[] handClassOrder(PreflopTable table) {
+        final double[] strength = new double[PreflopTable.HAND_CLASSES];
+        Integer[] order = new Integer[PreflopTable.HAND_CLASSES];
+        for (int handClass = 0; handClass < order.length; handClass++) {
+            order[handClass] = handClass;
+            if (table != null) {
+                strength[handClass] = table.getEquity(handClass, 1);
+            } else {
+                long cards = PreflopTableGenerator.representative(handClass);
+                int first = Long.numberOfTrailingZeros(cards);
+                int second = 63 - Long.numberOfLeadingZeros(cards);
+                strength[handClass] = Algorithms.computeChenFormula(
+                        HandEvaluator.card(first), HandEvaluator.card(second));
+            }
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer one, Integer two) {
+                return Double.compare(strength[two], strength[one]);
+            }
+        });
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++)
+            result[i] = order[i];
+        return result;
+    }
+}
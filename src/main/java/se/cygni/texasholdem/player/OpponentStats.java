@@ -0,0 +1,165 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.game.GamePlayer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per player counters built from the table events: how often a player puts
+ * money in voluntarily (VPIP) and raises (PFR) before the flop, how
+ * aggressive they are after it, and which hands they show down.
+ * <p/>
+ * Counters live in primitive arrays indexed by a slot per player name, so
+ * recording an event allocates nothing once a player has been seen. Meant
+ * to be written from the event thread only.
+ */
+public class OpponentStats {
+
+    private static final int CATEGORIES = HandEvaluator.STRAIGHT_FLUSH + 1;
+
+    /**
+     * Until we know better a player is assumed to play this share of hands,
+     * weighted as this many observed hands.
+     */
+    private static final double PRIOR_VPIP = 0.35;
+    private static final double PRIOR_HANDS = 10;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private long[] hands = new long[16];
+    private long[] vpipHands = new long[16];
+    private long[] pfrHands = new long[16];
+    private long[] aggressiveActions = new long[16];
+    private long[] passiveActions = new long[16];
+    private long[] showDowns = new long[16];
+    private long[] showDownCategories = new long[16 * CATEGORIES];
+    private boolean[] vpipThisHand = new boolean[16];
+    private boolean[] pfrThisHand = new boolean[16];
+    private int communityCards;
+
+    public void startHand(List<GamePlayer> players) {
+        communityCards = 0;
+        Arrays.fill(vpipThisHand, false);
+        Arrays.fill(pfrThisHand, false);
+        for (int i = 0; i < players.size(); i++)
+            hands[slot(players.get(i).getName())]++;
+    }
+
+    public void communityCardDealt() {
+        communityCards++;
+    }
+
+    public void called(String player) {
+        int slot = slot(player);
+        if (communityCards > 0)
+            passiveActions[slot]++;
+        voluntary(slot, false);
+    }
+
+    public void raised(String player) {
+        int slot = slot(player);
+        if (communityCards > 0)
+            aggressiveActions[slot]++;
+        voluntary(slot, true);
+    }
+
+    public void wentAllIn(String player) {
+        raised(player);
+    }
+
+    public void showedDown(String player, int handRank) {
+        int slot = slot(player);
+        showDowns[slot]++;
+        showDownCategories[slot * CATEGORIES + HandEvaluator.category(handRank)]++;
+    }
+
+    private void voluntary(int slot, boolean raise) {
+        if (communityCards > 0)
+            return;
+        if (!vpipThisHand[slot]) {
+            vpipThisHand[slot] = true;
+            vpipHands[slot]++;
+        }
+        if (raise && !pfrThisHand[slot]) {
+            pfrThisHand[slot] = true;
+            pfrHands[slot]++;
+        }
+    }
+
+    public long getHands(String player) {
+        Integer slot = slots.get(player);
+        return slot == null ? 0 : hands[slot];
+    }
+
+    public double getVpip(String player) {
+        Integer slot = slots.get(player);
+        return slot == null || hands[slot] == 0 ? 0 : (double) vpipHands[slot] / hands[slot];
+    }
+
+    public double getPfr(String player) {
+        Integer slot = slots.get(player);
+        return slot == null || hands[slot] == 0 ? 0 : (double) pfrHands[slot] / hands[slot];
+    }
+
+    /**
+     * Bets and raises per call after the flop; above 1 is aggressive.
+     */
+    public double getAggressionFactor(String player) {
+        Integer slot = slots.get(player);
+        if (slot == null)
+            return 1;
+        return (aggressiveActions[slot] + 1.0) / (passiveActions[slot] + 1.0);
+    }
+
+    /**
+     * Share of this player's showdowns that were made with the given hand category.
+     */
+    public double getShowDownFrequency(String player, int category) {
+        Integer slot = slots.get(player);
+        if (slot == null || showDowns[slot] == 0)
+            return 0;
+        return (double) showDownCategories[slot * CATEGORIES + category] / showDowns[slot];
+    }
+
+    /**
+     * The share of starting hands this player is estimated to play, pulled
+     * towards a typical player while we have seen only a few hands.
+     */
+    public double getRangeFraction(String player) {
+        Integer slot = slots.get(player);
+        if (slot == null)
+            return PRIOR_VPIP;
+        return (vpipHands[slot] + PRIOR_VPIP * PRIOR_HANDS) / (hands[slot] + PRIOR_HANDS);
+    }
+
+    public String describe(String player) {
+        return String.format("%s: %d hands, VPIP %.2f, PFR %.2f, AF %.2f",
+                player, getHands(player), getVpip(player), getPfr(player), getAggressionFactor(player));
+    }
+
+    private int slot(String player) {
+        Integer slot = slots.get(player);
+        if (slot != null)
+            return slot;
+        int next = slots.size();
+        if (next == hands.length)
+            grow();
+        slots.put(player, next);
+        return next;
+    }
+
+    private void grow() {
+        int size = hands.length * 2;
+        hands = Arrays.copyOf(hands, size);
+        vpipHands = Arrays.copyOf(vpipHands, size);
+        pfrHands = Arrays.copyOf(pfrHands, size);
+        aggressiveActions = Arrays.copyOf(aggressiveActions, size);
+        passiveActions = Arrays.copyOf(passiveActions, size);
+        showDowns = Arrays.copyOf(showDowns, size);
+        showDownCategories = Arrays.copyOf(showDownCategories, size * CATEGORIES);
+        vpipThisHand = Arrays.copyOf(vpipThisHand, size);
+        pfrThisHand = Arrays.copyOf(pfrThisHand, size);
+    }
+}
@@ -0,0 +1,318 @@
+package se.cygni.texasholdem.player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs hand strength enumeration and equity simulation, split over a
+ * fork/join pool when more than one thread is configured.
+ * <p/>
+ * Every worker counts into its own {@link Outcomes} and the partial counts
+ * are summed at the end, so enumeration gives exactly the same answer as the
+ * single threaded run. With one thread everything runs on the calling thread.
+ * <p/>
+ * Hand strength enumeration is shrunk by suit isomorphism: a suit with fewer
+ * than three cards on the board can never make a flush, so opponent cards
+ * of such dead suits are told apart by rank only. Each class of equivalent
+ * hands is evaluated once and counted with the number (or total weight) of
+ * hands in it, which gives exactly the same result as evaluating them all.
+ */
+public class ParallelEvaluator {
+
+    public static final String THREADS_PROPERTY = "kvargbot.threads";
+
+    private static final int SPLIT_THRESHOLD = 4;
+
+    private static final long SUIT_CARDS = 0x1FFFL;
+    private static final long RANK_CARDS = 1L | 1L << 13 | 1L << 26 | 1L << 39;
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<EquitySimulator> simulators = new ThreadLocal<EquitySimulator>() {
+        @Override
+        protected EquitySimulator initialValue() {
+            return new EquitySimulator();
+        }
+    };
+
+    public ParallelEvaluator(int threads) {
+        parallelism = Math.max(1, threads);
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * Thread count from {@value #THREADS_PROPERTY}, defaulting to one thread per core.
+     */
+    public static ParallelEvaluator fromSystemProperties() {
+        return new ParallelEvaluator(Integer.getInteger(THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Share of all opponent hole card pairs that {@code myRank} beats on this
+     * board, ties counting as half.
+     */
+    public double handStrength(int myRank, long boardCards, long unseenCards) {
+        return handStrength(myRank, boardCards, unseenCards, OpponentRange.uniform());
+    }
+
+    /**
+     * Like {@link #handStrength(int, long, long)}, each opponent hand counting
+     * with its weight in {@code range}. Hands are counted as they are
+     * enumerated, nothing is collected first.
+     */
+    public double handStrength(int myRank, long boardCards, long unseenCards, OpponentRange range) {
+        float[] weights = range.getWeights();
+        long[] classes = cardClasses(boardCards, unseenCards, 0);
+        Outcomes outcomes = pool == null
+                ? countOutcomes(myRank, boardCards, classes, weights, 0, classes.length, new Outcomes())
+                : pool.invoke(new EnumerationTask(myRank, boardCards, classes, weights, 0, classes.length));
+        return outcomes.getStrength();
+    }
+
+    /**
+     * Positive and negative potential over the next {@code lookahead} cards,
+     * one or two.
+     */
+    public HandPotential handPotential(long myCards, long boardCards, int lookahead) {
+        long unseenCards = HandEvaluator.FULL_DECK & ~(myCards | boardCards);
+        int myRank = HandEvaluator.evaluate(myCards | boardCards);
+        long[] classes = cardClasses(boardCards, unseenCards, lookahead);
+        HandPotential.Runouts runouts = new HandPotential.Runouts(myCards, boardCards, unseenCards, lookahead);
+        HandPotential.Counts counts = pool == null
+                ? HandPotential.count(myRank, boardCards, classes, runouts, 0, classes.length, new HandPotential.Counts())
+                : pool.invoke(new PotentialTask(myRank, boardCards, classes, runouts, 0, classes.length));
+        return counts.toPotential(lookahead, HandPotential.outs(myCards, boardCards, unseenCards));
+    }
+
+    public EquityResult equity(long myCards, long boardCards, int opponents, long deadlineNanos) {
+        if (pool == null)
+            return simulators.get().simulate(myCards, boardCards, opponents, deadlineNanos);
+
+        long start = System.nanoTime();
+        // each worker may be sqrt(n) less precise for the merged estimate to hit the target
+        final double precision = EquitySimulator.DEFAULT_PRECISION * Math.sqrt(parallelism);
+        List<ForkJoinTask<EquityResult>> tasks = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++)
+            tasks.add(pool.submit(new SimulationTask(myCards, boardCards, opponents, deadlineNanos, precision)));
+
+        double weightedEquity = 0, weightedVariance = 0;
+        long samples = 0;
+        for (ForkJoinTask<EquityResult> task : tasks) {
+            EquityResult part = task.join();
+            weightedEquity += part.getEquity() * part.getSamples();
+            double error = part.getStandardError() * part.getSamples();
+            weightedVariance += error * error;
+            samples += part.getSamples();
+        }
+        return new EquityResult(samples == 0 ? 0 : weightedEquity / samples,
+                samples == 0 ? 1 : Math.sqrt(weightedVariance) / samples,
+                samples, System.nanoTime() - start);
+    }
+
+    public void shutdown() {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    /**
+     * Splits the unseen cards into classes that are interchangeable for an
+     * opponent: each card of a suit that can still make a flush on its own,
+     * and per rank all cards of the dead suits together.
+     *
+     * @param cardsToCome board cards still to be dealt, which may revive a suit
+     * @return the cards of each class
+     */
+    static long[] cardClasses(long boardCards, long unseenCards, int cardsToCome) {
+        long deadSuits = 0;
+        for (int suit = 0; suit < 4; suit++) {
+            long suitCards = SUIT_CARDS << (suit * 13);
+            if (Long.bitCount(boardCards & suitCards) + cardsToCome < 3)
+                deadSuits |= suitCards;
+        }
+        long live = unseenCards & ~deadSuits;
+        long dead = unseenCards & deadSuits;
+        long[] classes = new long[Long.bitCount(live) + 13];
+        int count = 0;
+        for (long cards = live; cards != 0; cards &= cards - 1)
+            classes[count++] = Long.lowestOneBit(cards);
+        for (int rank = 0; rank < 13; rank++) {
+            long rankCards = dead & (RANK_CARDS << rank);
+            if (rankCards != 0)
+                classes[count++] = rankCards;
+        }
+        return Arrays.copyOf(classes, count);
+    }
+
+    /**
+     * Counts the hands made of classes {@code a} in {@code [fromClass, toClass)}
+     * and {@code b >= a}, evaluating one representative of each.
+     *
+     * @param weights opponent hand weights as in {@link OpponentRange}, or null for all equal
+     */
+    static Outcomes countOutcomes(int myRank, long boardCards, long[] classes, float[] weights,
+                                  int fromClass, int toClass, Outcomes outcomes) {
+        for (int a = fromClass; a < toClass; a++) {
+            long first = classes[a];
+            long firstCard = Long.lowestOneBit(first);
+            for (int b = a; b < classes.length; b++) {
+                long second = classes[b];
+                long secondCard;
+                double hands;
+                if (a == b) {
+                    int size = Long.bitCount(first);
+                    if (size < 2)
+                        continue;
+                    secondCard = Long.lowestOneBit(first & ~firstCard);
+                    hands = weights == null ? size * (size - 1) / 2 : weightWithin(first, weights);
+                } else {
+                    secondCard = Long.lowestOneBit(second);
+                    hands = weights == null ? Long.bitCount(first) * Long.bitCount(second)
+                            : weightBetween(first, second, weights);
+                }
+                if (hands == 0)
+                    continue;
+                int oppRank = HandEvaluator.evaluate(boardCards | firstCard | secondCard);
+                if (myRank > oppRank)
+                    outcomes.ahead += hands;
+                else if (myRank == oppRank)
+                    outcomes.tied += hands;
+                else
+                    outcomes.behind += hands;
+            }
+        }
+        return outcomes;
+    }
+
+    private static double weightWithin(long cards, float[] weights) {
+        double total = 0;
+        for (long x = cards; x != 0; x &= x - 1)
+            for (long y = x & (x - 1); y != 0; y &= y - 1)
+                total += weights[OpponentRange.index(Long.numberOfTrailingZeros(x), Long.numberOfTrailingZeros(y))];
+        return total;
+    }
+
+    private static double weightBetween(long first, long second, float[] weights) {
+        double total = 0;
+        for (long x = first; x != 0; x &= x - 1) {
+            int i = Long.numberOfTrailingZeros(x);
+            for (long y = second; y != 0; y &= y - 1) {
+                int k = Long.numberOfTrailingZeros(y);
+                total += weights[OpponentRange.index(Math.min(i, k), Math.max(i, k))];
+            }
+        }
+        return total;
+    }
+
+    static class Outcomes {
+        double ahead;
+        double tied;
+        double behind;
+
+        Outcomes add(Outcomes other) {
+            ahead += other.ahead;
+            tied += other.tied;
+            behind += other.behind;
+            return this;
+        }
+
+        double getStrength() {
+            double total = ahead + tied + behind;
+            return total == 0 ? 0 : (ahead + tied / 2.0) / total;
+        }
+    }
+
+    private static class EnumerationTask extends RecursiveTask<Outcomes> {
+        private final int myRank;
+        private final long boardCards;
+        private final long[] classes;
+        private final float[] weights;
+        private final int fromClass;
+        private final int toClass;
+
+        EnumerationTask(int myRank, long boardCards, long[] classes, float[] weights,
+                        int fromClass, int toClass) {
+            this.myRank = myRank;
+            this.boardCards = boardCards;
+            this.classes = classes;
+            this.weights = weights;
+            this.fromClass = fromClass;
+            this.toClass = toClass;
+        }
+
+        @Override
+        protected Outcomes compute() {
+            if (toClass - fromClass <= SPLIT_THRESHOLD)
+                return countOutcomes(myRank, boardCards, classes, weights, fromClass, toClass, new Outcomes());
+
+            // low classes pair with more classes, so split below the middle
+            int split = fromClass + (int) ((toClass - fromClass) * 0.4);
+            EnumerationTask low = new EnumerationTask(myRank, boardCards, classes, weights, fromClass, split);
+            EnumerationTask high = new EnumerationTask(myRank, boardCards, classes, weights, split, toClass);
+            high.fork();
+            return low.compute().add(high.join());
+        }
+    }
+
+    private static class PotentialTask extends RecursiveTask<HandPotential.Counts> {
+        private final int myRank;
+        private final long boardCards;
+        private final long[] classes;
+        private final HandPotential.Runouts runouts;
+        private final int fromClass;
+        private final int toClass;
+
+        PotentialTask(int myRank, long boardCards, long[] classes, HandPotential.Runouts runouts,
+                      int fromClass, int toClass) {
+            this.myRank = myRank;
+            this.boardCards = boardCards;
+            this.classes = classes;
+            this.runouts = runouts;
+            this.fromClass = fromClass;
+            this.toClass = toClass;
+        }
+
+        @Override
+        protected HandPotential.Counts compute() {
+            if (toClass - fromClass <= SPLIT_THRESHOLD)
+                return HandPotential.count(myRank, boardCards, classes, runouts, fromClass, toClass,
+                        new HandPotential.Counts());
+
+            int split = fromClass + (int) ((toClass - fromClass) * 0.4);
+            PotentialTask low = new PotentialTask(myRank, boardCards, classes, runouts, fromClass, split);
+            PotentialTask high = new PotentialTask(myRank, boardCards, classes, runouts, split, toClass);
+            high.fork();
+            return low.compute().add(high.join());
+        }
+    }
+
+    private class SimulationTask extends RecursiveTask<EquityResult> {
+        private final long myCards;
+        private final long boardCards;
+        private final int opponents;
+        private final long deadlineNanos;
+        private final double precision;
+
+        SimulationTask(long myCards, long boardCards, int opponents, long deadlineNanos, double precision) {
+            this.myCards = myCards;
+            this.boardCards = boardCards;
+            this.opponents = opponents;
+            this.deadlineNanos = deadlineNanos;
+            this.precision = precision;
+        }
+
+        @Override
+        protected EquityResult compute() {
+            return simulators.get().simulate(myCards, boardCards, opponents, deadlineNanos,
+                    precision, Long.MAX_VALUE);
+        }
+    }
+}
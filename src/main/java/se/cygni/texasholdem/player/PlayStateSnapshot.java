@@ -0,0 +1,123 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.client.CurrentPlayState;
+import se.cygni.texasholdem.game.Card;
+import se.cygni.texasholdem.game.GamePlayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a decision reads from the {@link CurrentPlayState}, copied when the
+ * action request arrives. The client keeps changing the play state on its
+ * own thread, so a decision running on another thread, possibly past a
+ * fallback and into the next events, reads this copy instead.
+ */
+final class PlayStateSnapshot {
+
+    private final List<Card> myCards;
+    private final List<Card> communityCards;
+    private final long potTotal;
+    private final long myChips;
+    private final long myInvestment;
+    private final int numberOfPlayers;
+    private final int numberOfFoldedPlayers;
+    private final int opponents;
+    private final String[] opponentNames;
+    private final long[] opponentChips;
+    private final long[] opponentInvestments;
+    private final boolean[] opponentFolded;
+    private final boolean[] opponentAllIn;
+
+    private PlayStateSnapshot(String myName, CurrentPlayState state) {
+        myCards = Collections.unmodifiableList(new ArrayList<>(state.getMyCards()));
+        communityCards = Collections.unmodifiableList(new ArrayList<>(state.getCommunityCards()));
+        potTotal = state.getPotTotal();
+        myChips = state.getMyCurrentChipAmount();
+        myInvestment = state.getMyInvestmentInPot();
+        numberOfPlayers = state.getNumberOfPlayers();
+        numberOfFoldedPlayers = state.getNumberOfFoldedPlayers();
+
+        List<GamePlayer> players = new ArrayList<>(state.getPlayers());
+        int opponents = 0;
+        opponentNames = new String[players.size()];
+        opponentChips = new long[players.size()];
+        opponentInvestments = new long[players.size()];
+        opponentFolded = new boolean[players.size()];
+        opponentAllIn = new boolean[players.size()];
+        for (GamePlayer player : players) {
+            if (myName.equals(player.getName()))
+                continue;
+            opponentNames[opponents] = player.getName();
+            opponentChips[opponents] = player.getChipCount();
+            opponentInvestments[opponents] = state.getInvestmentInPotFor(player);
+            opponentFolded[opponents] = state.hasPlayerFolded(player);
+            opponentAllIn[opponents] = state.hasPlayerGoneAllIn(player);
+            opponents++;
+        }
+        this.opponents = opponents;
+    }
+
+    /**
+     * Must be called on the thread that updates {@code state}.
+     */
+    static PlayStateSnapshot of(String myName, CurrentPlayState state) {
+        return new PlayStateSnapshot(myName, state);
+    }
+
+    public List<Card> getMyCards() {
+        return myCards;
+    }
+
+    public List<Card> getCommunityCards() {
+        return communityCards;
+    }
+
+    public long getPotTotal() {
+        return potTotal;
+    }
+
+    public long getMyCurrentChipAmount() {
+        return myChips;
+    }
+
+    public long getMyInvestmentInPot() {
+        return myInvestment;
+    }
+
+    public int getNumberOfPlayers() {
+        return numberOfPlayers;
+    }
+
+    public int getNumberOfFoldedPlayers() {
+        return numberOfFoldedPlayers;
+    }
+
+    /**
+     * @return the number of other players at the table, folded or not
+     */
+    public int getOpponentCount() {
+        return opponents;
+    }
+
+    public String getOpponentName(int opponent) {
+        return opponentNames[opponent];
+    }
+
+    public long getOpponentChips(int opponent) {
+        return opponentChips[opponent];
+    }
+
+    public long getOpponentInvestment(int opponent) {
+        return opponentInvestments[opponent];
+    }
+
+    public boolean hasOpponentFolded(int opponent) {
+        return opponentFolded[opponent];
+    }
+
+    public boolean hasOpponentGoneAllIn(int opponent) {
+        return opponentAllIn[opponent];
+    }
+}
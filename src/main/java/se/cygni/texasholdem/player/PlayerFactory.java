@@ -0,0 +1,16 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.client.CurrentPlayState;
+import se.cygni.texasholdem.game.Player;
+
+/**
+ * Creates the player for one seat at a {@link LocalTable}.
+ */
+public interface PlayerFactory {
+
+    /**
+     * @param name      unique name of the seat
+     * @param playState kept up to date by the table, like PlayerClient does online
+     */
+    Player create(String name, CurrentPlayState playState);
+}
@@ -0,0 +1,138 @@
+package se.cygni.texasholdem.player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Preflop equity of the 169 starting hand classes against 1 to 9 random
+ * opponents, read straight from a memory mapped file or, as packaged in
+ * the jar, from the classpath.
+ * <p/>
+ * The file is a 16 byte header (magic, version, classes, opponents)
+ * followed by one float per class and opponent count, class major. It is
+ * written by {@link PreflopTableGenerator}.
+ */
+public class PreflopTable {
+
+    private static Logger log = LoggerFactory.getLogger(PreflopTable.class);
+
+    public static final String FILE_PROPERTY = "kvargbot.preflopTable";
+    public static final String RESOURCE = "preflop-equity.bin";
+
+    public static final int HAND_CLASSES = 169;
+    public static final int MAX_OPPONENTS = 9;
+
+    static final int MAGIC = 0x4B565046;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int FILE_BYTES = HEADER_BYTES + HAND_CLASSES * MAX_OPPONENTS * 4;
+
+    private final ByteBuffer buffer;
+
+    private PreflopTable(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public static PreflopTable load(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return check(buffer, channel.size(), file.toString());
+        }
+    }
+
+    /**
+     * Reads the table from {@code in}, which is left open.
+     */
+    public static PreflopTable load(InputStream in, String name) throws IOException {
+        byte[] bytes = new byte[FILE_BYTES];
+        int read = 0;
+        int n;
+        while (read < bytes.length && (n = in.read(bytes, read, bytes.length - read)) >= 0)
+            read += n;
+        boolean more = in.read() >= 0;
+        return check(ByteBuffer.wrap(bytes), more ? read + 1 : read, name);
+    }
+
+    private static PreflopTable check(ByteBuffer buffer, long size, String name) throws IOException {
+        if (size != FILE_BYTES
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION
+                || buffer.getInt(8) != HAND_CLASSES
+                || buffer.getInt(12) != MAX_OPPONENTS)
+            throw new IOException(name + " is not a preflop equity table");
+        return new PreflopTable(buffer);
+    }
+
+    /**
+     * The file named by {@value #FILE_PROPERTY}, or else {@value #RESOURCE}
+     * on the classpath, where {@code mvn -Ppreflop-table package} puts it
+     * so that it ships in the jar. Without either the bot plays preflop by
+     * the Chen formula, which is worth a warning.
+     *
+     * @return the table, or null if there is none to load
+     */
+    public static PreflopTable loadDefault() {
+        String name = System.getProperty(FILE_PROPERTY);
+        if (name != null)
+            return loadFile(new File(name));
+        try (InputStream in = PreflopTable.class.getResourceAsStream("/" + RESOURCE)) {
+            if (in == null) {
+                log.warn("No preflop table {} on the classpath, falling back to the Chen formula", RESOURCE);
+                return null;
+            }
+            return load(in, RESOURCE);
+        } catch (IOException e) {
+            log.warn("Could not load preflop table " + RESOURCE, e);
+            return null;
+        }
+    }
+
+    private static PreflopTable loadFile(File file) {
+        if (!file.isFile()) {
+            log.warn("No preflop table at {}, falling back to the Chen formula", file);
+            return null;
+        }
+        try {
+            return load(file);
+        } catch (IOException e) {
+            log.warn("Could not load preflop table " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Pairs sit on the diagonal of a 13x13 grid, suited hands above it and
+     * offsuit hands below it.
+     */
+    public static int handClass(int firstCard, int secondCard) {
+        int firstRank = firstCard % 13;
+        int secondRank = secondCard % 13;
+        int high = Math.max(firstRank, secondRank);
+        int low = Math.min(firstRank, secondRank);
+        boolean suited = firstCard / 13 == secondCard / 13;
+        return suited ? low * 13 + high : high * 13 + low;
+    }
+
+    public static int handClass(long holeCards) {
+        int first = Long.numberOfTrailingZeros(holeCards);
+        int second = Long.numberOfTrailingZeros(holeCards & ~(1L << first));
+        return handClass(first, second);
+    }
+
+    public double getEquity(long holeCards, int opponents) {
+        return getEquity(handClass(holeCards), opponents);
+    }
+
+    public double getEquity(int handClass, int opponents) {
+        opponents = Math.min(MAX_OPPONENTS, Math.max(1, opponents));
+        return buffer.getFloat(HEADER_BYTES + (handClass * MAX_OPPONENTS + opponents - 1) * 4);
+    }
+}
@@ -0,0 +1,184 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.game.Card;
+import se.cygni.texasholdem.game.definitions.Rank;
+
+import java.util.List;
+
+/**
+ * Cards as primitives: a card is a byte {@code suit * 13 + rank}, rank 0
+ * being a deuce and 12 an ace, and a set of cards is a long with one bit
+ * per card, as in {@link HandEvaluator}.
+ * <p/>
+ * The rank extractors work on a mask of five to seven cards with bit
+ * tricks and return a rank from 0 to 12, or -1 when the hand doesn't have
+ * what was asked for. Nothing is allocated or boxed.
+ */
+public final class PrimitiveCards {
+
+    public static final byte NO_CARD = -1;
+
+    private static final int RANK_MASK = 0x1FFF;
+    private static final int WHEEL = 0x100F;
+    private static final Rank[] RANKS = new Rank[13];
+
+    static {
+        for (Rank rank : Rank.values())
+            RANKS[fromRank(rank)] = rank;
+    }
+
+    private PrimitiveCards() {
+    }
+
+    public static byte encode(Card card) {
+        return (byte) HandEvaluator.index(card);
+    }
+
+    public static Card decode(byte card) {
+        return HandEvaluator.card(card);
+    }
+
+    public static int rank(byte card) {
+        return card % 13;
+    }
+
+    public static int suit(byte card) {
+        return card / 13;
+    }
+
+    public static long mask(byte card) {
+        return 1L << card;
+    }
+
+    public static long mask(List<Card> cards) {
+        return HandEvaluator.mask(cards);
+    }
+
+    /**
+     * Writes the cards in {@code mask} to {@code cards}, lowest first.
+     *
+     * @return the number of cards written
+     */
+    public static int toBytes(long mask, byte[] cards) {
+        int count = 0;
+        for (; mask != 0 && count < cards.length; mask &= mask - 1)
+            cards[count++] = (byte) Long.numberOfTrailingZeros(mask);
+        return count;
+    }
+
+    /**
+     * Adds the cards in {@code mask} to {@code cards}, lowest first.
+     */
+    public static void toCards(long mask, List<Card> cards) {
+        for (; mask != 0; mask &= mask - 1)
+            cards.add(HandEvaluator.card(Long.numberOfTrailingZeros(mask)));
+    }
+
+    /**
+     * The inverse of {@link #fromRank(Rank)}.
+     */
+    public static Rank toRank(int rank) {
+        return RANKS[rank];
+    }
+
+    /**
+     * 0 for a deuce up to 12 for an ace, as ranks are encoded in cards.
+     */
+    public static int fromRank(Rank rank) {
+        return rank.getOrderValue() - 2;
+    }
+
+    /**
+     * One bit per rank held in any suit.
+     */
+    public static int ranks(long mask) {
+        return suitRanks(mask, 0) | suitRanks(mask, 1) | suitRanks(mask, 2) | suitRanks(mask, 3);
+    }
+
+    public static int suitRanks(long mask, int suit) {
+        return (int) (mask >>> (suit * 13)) & RANK_MASK;
+    }
+
+    public static int highRank(long mask) {
+        return highest(ranks(mask));
+    }
+
+    /**
+     * The highest rank held at least twice.
+     */
+    public static int pairRank(long mask) {
+        return highest(pairs(mask));
+    }
+
+    /**
+     * The two highest pair ranks packed as {@code high << 4 | low}, or -1
+     * with fewer than two pairs.
+     */
+    public static int twoPairRanks(long mask) {
+        int pairs = pairs(mask);
+        if (Integer.bitCount(pairs) < 2)
+            return -1;
+        int high = highest(pairs);
+        return high << 4 | highest(pairs & ~(1 << high));
+    }
+
+    /**
+     * The highest rank held at least three times.
+     */
+    public static int tripsRank(long mask) {
+        int c = suitRanks(mask, 0), d = suitRanks(mask, 1), h = suitRanks(mask, 2), s = suitRanks(mask, 3);
+        return highest((c & d & h) | (c & d & s) | (c & h & s) | (d & h & s));
+    }
+
+    public static int quadsRank(long mask) {
+        return highest(suitRanks(mask, 0) & suitRanks(mask, 1) & suitRanks(mask, 2) & suitRanks(mask, 3));
+    }
+
+    /**
+     * The top card of the best straight, 3 for the five high wheel.
+     */
+    public static int straightHigh(long mask) {
+        return straightHigh(ranks(mask));
+    }
+
+    /**
+     * The five highest ranks of the flush suit packed four bits each,
+     * highest first, or -1 without a flush.
+     */
+    public static int flushKickers(long mask) {
+        for (int suit = 0; suit < 4; suit++) {
+            int ranks = suitRanks(mask, suit);
+            if (Integer.bitCount(ranks) < 5)
+                continue;
+            int packed = 0;
+            for (int i = 0; i < 5; i++) {
+                int top = highest(ranks);
+                packed = packed << 4 | top;
+                ranks &= ~(1 << top);
+            }
+            return packed;
+        }
+        return -1;
+    }
+
+    private static int pairs(long mask) {
+        int c = suitRanks(mask, 0), d = suitRanks(mask, 1), h = suitRanks(mask, 2), s = suitRanks(mask, 3);
+        return (c & d) | (c & h) | (c & s) | (d & h) | (d & s) | (h & s);
+    }
+
+    private static int straightHigh(int ranks) {
+        int runs = ranks & (ranks << 1) & (ranks << 2) & (ranks << 3) & (ranks << 4);
+        if (runs != 0)
+            return highest(runs);
+        if ((ranks & WHEEL) == WHEEL)
+            return 3;
+        return -1;
+    }
+
+    /**
+     * The highest set bit, or -1 for none.
+     */
+    private static int highest(int bits) {
+        return 31 - Integer.numberOfLeadingZeros(bits);
+    }
+}
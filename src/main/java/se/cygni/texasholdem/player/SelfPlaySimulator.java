@@ -0,0 +1,162 @@
+package se.cygni.texasholdem.player;
+
+import ch.qos.logback.classic.Level;
+import org.slf4j.LoggerFactory;
+import se.cygni.texasholdem.client.CurrentPlayState;
+import se.cygni.texasholdem.game.Player;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many {@link LocalTable}s in parallel and reports win rate per
+ * player type and overall hands per second.
+ * <p/>
+ * Usage: SelfPlaySimulator [tables] [hands per table] [threads] [seed]
+ * <p/>
+ * Every table seats the same lineup and gets its own seed derived from the
+ * given one, so a run can be repeated exactly. Bot logging is turned down to
+ * warnings, and unless {@value TimeBudget#MAX_BUDGET_PROPERTY} is given each
+ * decision may think for at most half a millisecond. The bots' time budgets
+ * leave correspondingly less for simulating and for counting the river
+ * than on the server.
+ */
+public class SelfPlaySimulator {
+
+    private static final long STARTING_CHIPS = 10000;
+    private static final long BIG_BLIND = 20;
+    private static final long ACTION_TIMEOUT_MILLIS = 1000;
+    private static final String DEFAULT_MAX_BUDGET_MILLIS = "0.5";
+    private static final long MIN_SIMULATION_NANOS = 100000L;
+    private static final long ENUMERATION_RESERVE_NANOS = 200000L;
+
+    private final Map<String, PlayerFactory> lineup = new LinkedHashMap<>();
+
+    public SelfPlaySimulator seat(String label, PlayerFactory factory) {
+        lineup.put(label + "#" + lineup.size(), factory);
+        return this;
+    }
+
+    public Map<String, Result> run(int tables, final int handsPerTable, int threads, long seed) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<LocalTable>> futures = new ArrayList<>(tables);
+            for (int i = 0; i < tables; i++) {
+                final LocalTable table = new LocalTable(i, seed * 31 + i, STARTING_CHIPS, BIG_BLIND, ACTION_TIMEOUT_MILLIS);
+                for (Map.Entry<String, PlayerFactory> entry : lineup.entrySet())
+                    table.addSeat(entry.getKey(), entry.getValue());
+                futures.add(executor.submit(new Callable<LocalTable>() {
+                    @Override
+                    public LocalTable call() {
+                        table.play(handsPerTable);
+                        return table;
+                    }
+                }));
+            }
+
+            Map<String, Result> results = new LinkedHashMap<>();
+            for (String label : lineup.keySet())
+                results.put(label, new Result());
+            for (Future<LocalTable> future : futures) {
+                LocalTable table = future.get();
+                for (LocalTable.Seat seat : table.getSeats()) {
+                    results.get(seat.getLabel()).add(seat, table.getHandsPlayed());
+                    if (seat.getPlayer() instanceof KvargBot)
+                        ((KvargBot) seat.getPlayer()).getHistory().close();
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(String... args) throws Exception {
+        int tables = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int hands = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 4711;
+
+        org.slf4j.Logger botLogger = LoggerFactory.getLogger("se");
+        if (botLogger instanceof ch.qos.logback.classic.Logger)
+            ((ch.qos.logback.classic.Logger) botLogger).setLevel(Level.WARN);
+        final long maxBudgetNanos = TimeBudget.maxBudgetNanos(DEFAULT_MAX_BUDGET_MILLIS);
+
+        // the tables already use every core, so evaluation stays on the table thread
+        final EvaluationContext context = new EvaluationContext(new ParallelEvaluator(1),
+                PreflopTable.loadDefault(), HandStrengthCache.fromSystemProperties());
+        PlayerFactory kvargBot = new PlayerFactory() {
+            @Override
+            public Player create(String name, CurrentPlayState playState) {
+                return new KvargBot(name, playState, context, HandHistoryRecorder.fromSystemProperties(name),
+                        new TimeBudget(ACTION_TIMEOUT_MILLIS, maxBudgetNanos, MIN_SIMULATION_NANOS,
+                                ENUMERATION_RESERVE_NANOS));
+            }
+        };
+        PlayerFactory callingStation = new PlayerFactory() {
+            @Override
+            public Player create(String name, CurrentPlayState playState) {
+                return new CallingStation(name);
+            }
+        };
+        SelfPlaySimulator simulator = new SelfPlaySimulator()
+                .seat("KvargBot", kvargBot)
+                .seat("KvargBot", kvargBot)
+                .seat("CallingStation", callingStation)
+                .seat("CallingStation", callingStation);
+
+        long start = System.nanoTime();
+        Map<String, Result> results = simulator.run(tables, hands, threads, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long totalHands = (long) tables * hands;
+        System.out.printf("%d hands on %d tables in %.1f s: %.0f hands/s%n",
+                totalHands, tables, seconds, totalHands / seconds);
+        for (Map.Entry<String, Result> entry : results.entrySet())
+            System.out.printf("%-20s %s%n", entry.getKey(), entry.getValue());
+        context.shutdown();
+    }
+
+    /**
+     * Totals for one lineup position over all tables.
+     */
+    public static class Result {
+        private long netChips;
+        private long hands;
+        private long decisions;
+        private long decisionNanos;
+        private long forcedFolds;
+
+        void add(LocalTable.Seat seat, long handsPlayed) {
+            netChips += seat.getChips() - STARTING_CHIPS * (1 + seat.getBuyIns());
+            hands += handsPlayed;
+            decisions += seat.getDecisions();
+            decisionNanos += seat.getDecisionNanos();
+            forcedFolds += seat.getForcedFolds();
+        }
+
+        public double getBigBlindsPer100Hands() {
+            return hands == 0 ? 0 : 100.0 * netChips / BIG_BLIND / hands;
+        }
+
+        public double getMeanDecisionMillis() {
+            return decisions == 0 ? 0 : decisionNanos / 1e6 / decisions;
+        }
+
+        public long getForcedFolds() {
+            return forcedFolds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%+8.2f bb/100  %6.3f ms/decision  %d forced folds",
+                    getBigBlindsPer100Hands(), getMeanDecisionMillis(), forcedFolds);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.communication.message.event.*;
+import se.cygni.texasholdem.communication.message.request.ActionRequest;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+import se.cygni.texasholdem.game.Card;
+import se.cygni.texasholdem.game.GamePlayer;
+import se.cygni.texasholdem.game.Hand;
+import se.cygni.texasholdem.game.PlayerShowDown;
+import se.cygni.texasholdem.game.definitions.PokerHand;
+
+import java.util.List;
+
+/**
+ * Builds the messages the poker server would send, for driving players
+ * without a server. Keeping every constructor call in one place keeps the
+ * local table independent of how the client library models its messages.
+ */
+final class SimulatedEvents {
+
+    private SimulatedEvents() {
+    }
+
+    static GamePlayer player(String name, long chips) {
+        return new GamePlayer(name, chips);
+    }
+
+    static Action action(ActionType type, long amount) {
+        return new Action(type, amount);
+    }
+
+    static ActionRequest actionRequest(List<Action> possibleActions) {
+        ActionRequest request = new ActionRequest();
+        request.setPossibleActions(possibleActions);
+        return request;
+    }
+
+    static PlayIsStartedEvent playIsStarted(List<GamePlayer> players, long smallBlind, long bigBlind,
+                                            GamePlayer dealer, long tableId) {
+        return new PlayIsStartedEvent(players, smallBlind, bigBlind, dealer, tableId);
+    }
+
+    static PlayerBetSmallBlindEvent smallBlind(GamePlayer player, long amount) {
+        return new PlayerBetSmallBlindEvent(player, amount);
+    }
+
+    static PlayerBetBigBlindEvent bigBlind(GamePlayer player, long amount) {
+        return new PlayerBetBigBlindEvent(player, amount);
+    }
+
+    static YouHaveBeenDealtACardEvent dealt(Card card) {
+        return new YouHaveBeenDealtACardEvent(card);
+    }
+
+    static CommunityHasBeenDealtACardEvent community(Card card) {
+        return new CommunityHasBeenDealtACardEvent(card);
+    }
+
+    static PlayerFoldedEvent folded(GamePlayer player, long investment) {
+        return new PlayerFoldedEvent(player, investment);
+    }
+
+    static PlayerForcedFoldedEvent forcedFolded(GamePlayer player, long investment) {
+        return new PlayerForcedFoldedEvent(player, investment);
+    }
+
+    static PlayerCheckedEvent checked(GamePlayer player) {
+        return new PlayerCheckedEvent(player);
+    }
+
+    static PlayerCalledEvent called(GamePlayer player, long amount) {
+        return new PlayerCalledEvent(player, amount);
+    }
+
+    static PlayerRaisedEvent raised(GamePlayer player, long amount) {
+        return new PlayerRaisedEvent(player, amount);
+    }
+
+    static PlayerWentAllInEvent allIn(GamePlayer player, long amount) {
+        return new PlayerWentAllInEvent(player, amount);
+    }
+
+    static YouWonAmountEvent wonAmount(long won, long chips) {
+        return new YouWonAmountEvent(won, chips);
+    }
+
+    static PlayerShowDown showDown(GamePlayer player, List<Card> cards, int handRank, boolean folded, long won) {
+        return new PlayerShowDown(player, new Hand(cards, pokerHand(handRank), folded), won);
+    }
+
+    static ShowDownEvent showDown(List<PlayerShowDown> players) {
+        return new ShowDownEvent(players);
+    }
+
+    static TableIsDoneEvent tableIsDone(long tableId, List<GamePlayer> players) {
+        return new TableIsDoneEvent(tableId, players);
+    }
+
+    static PokerHand pokerHand(int handRank) {
+        switch (HandEvaluator.category(handRank)) {
+            case HandEvaluator.STRAIGHT_FLUSH:
+                return (handRank >>> 16 & 0xF) == 12 ? PokerHand.ROYAL_FLUSH : PokerHand.STRAIGHT_FLUSH;
+            case HandEvaluator.FOUR_OF_A_KIND: return PokerHand.FOUR_OF_A_KIND;
+            case HandEvaluator.FULL_HOUSE: return PokerHand.FULL_HOUSE;
+            case HandEvaluator.FLUSH: return PokerHand.FLUSH;
+            case HandEvaluator.STRAIGHT: return PokerHand.STRAIGHT;
+            case HandEvaluator.THREE_OF_A_KIND: return PokerHand.THREE_OF_A_KIND;
+            case HandEvaluator.TWO_PAIRS: return PokerHand.TWO_PAIRS;
+            case HandEvaluator.ONE_PAIR: return PokerHand.ONE_PAIR;
+            default: return PokerHand.HIGH_HAND;
+        }
+    }
+}
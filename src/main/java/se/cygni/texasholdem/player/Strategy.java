@@ -0,0 +1,48 @@
+package se.cygni.texasholdem.player;
+
+/**
+ * Turns what {@link KvargBot} knows about its hand into a move. The bot
+ * works out the strengths, the strategy only decides how much to put in
+ * for them, so strategies can be swapped and tuned without a table.
+ * <p/>
+ * A move is what the strategy wants when everything is on offer; when it
+ * is not, the bot settles for the next more careful move that is.
+ *
+ * @see ThresholdStrategy
+ */
+public interface Strategy {
+
+    enum Move {
+        /** Check when that is free, otherwise fold. */
+        FOLD,
+        /** Call, or check when there is nothing to call. */
+        CALL,
+        /** Raise, or failing that call or check. */
+        RAISE,
+        /** Raise, call or check, and go all in when none of them is offered. */
+        RAISE_OR_ALL_IN,
+        /** All in, or failing that raise, call or check. */
+        ALL_IN
+    }
+
+    /**
+     * @param strength  heads up scaled equity of our hole cards from the preflop table
+     * @param opponents opponents still in the hand
+     */
+    Move preFlop(double strength, int opponents);
+
+    /**
+     * The preflop decision when there is no preflop table to look in.
+     */
+    Move preFlopByChen(double chenScore, int opponents);
+
+    /**
+     * @param strength     heads up scaled strength of our hand on the board,
+     *                     less what an all in opponent's range takes off
+     * @param chenScore    Chen score of our hole cards
+     * @param handCategory the {@link HandEvaluator} category of our best hand
+     * @param opponents    opponents still in the hand
+     * @param mostChips    whether nobody at the table has more chips than us
+     */
+    Move postFlop(double strength, double chenScore, int handCategory, int opponents, boolean mostChips);
+}
@@ -0,0 +1,449 @@
+package se.cygni.texasholdem.player;
+
+import se.cygni.texasholdem.game.ActionType;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches for better {@link ThresholdStrategy} parameters by playing
+ * thousands of parameter vectors heads up against the default strategy on
+ * the same seeded deals.
+ * <p/>
+ * Usage: StrategyTuner [vectors] [deals] [threads] [seed]
+ * <p/>
+ * Everything a strategy decides from is worked out once per deal and
+ * shared read only by all vectors: the preflop strengths, Chen scores, the
+ * strength and hand category on every street and who wins the showdown.
+ * Playing a deal is then just the betting, with no allocation per hand,
+ * and the vectors are spread over a work stealing pool. Every deal is
+ * played twice with the seats swapped so that the cards even out; the
+ * default vector scores exactly zero.
+ * <p/>
+ * The betting follows {@link LocalTable}'s fixed limit rules heads up, and
+ * moves are played as KvargBot plays them: after the flop the strategy's
+ * move caps what goes in, and the action worth the most chips within it is
+ * taken. What the bot learns about its opponent, the all in penalty and
+ * the draws it calls on pot odds, is left out.
+ */
+public class StrategyTuner {
+
+    private static final long STARTING_CHIPS = 10000;
+    private static final long SMALL_BLIND = 10;
+    private static final long BIG_BLIND = 20;
+    private static final int MAX_RAISES = 4;
+    private static final int EQUITY_SAMPLES = 2000;
+    private static final int SPLIT_THRESHOLD = 4;
+
+    private static final int PREFLOP = 0;
+    private static final int FLOP = 1;
+    private static final int TURN = 2;
+    private static final int RIVER = 3;
+    private static final int STREETS = 4;
+
+    /** What {@link LocalTable} may offer, in the order KvargBot weighs them. */
+    private static final ActionType[] OFFERED = {
+            ActionType.CHECK, ActionType.FOLD, ActionType.CALL, ActionType.RAISE, ActionType.ALL_IN
+    };
+
+    /** How far {@link #perturb} moves each parameter, one standard deviation. */
+    private static final double[] SPREAD = {
+            0.05, 0.05, 0.05, 0.05, 0.03,
+            1.5, 1.5, 1.5,
+            0.04, 0.04, 0.04,
+            0.05, 0.05, 0.05, 0.05, 0.05
+    };
+
+    private final Strategy baseline;
+    private final int deals;
+    // per deal and seat: [deal * 2 + seat]
+    private final double[] preflopStrength;
+    private final double[] chenScore;
+    // per deal, seat and street, preflop unused: [(deal * 2 + seat) * STREETS + street]
+    private final double[] strength;
+    private final int[] category;
+    // per deal: 1 when seat 0 wins the showdown, -1 when seat 1 does, 0 on a split
+    private final int[] winner;
+    private final boolean usePreflopTable;
+
+    /**
+     * Deals {@code deals} heads up hands from {@code seed} and works out
+     * everything the strategies need, in parallel on {@code pool}.
+     *
+     * @param preflopTable the table the bot would use, or null for the Chen formula
+     */
+    public StrategyTuner(Strategy baseline, int deals, long seed, PreflopTable preflopTable, ForkJoinPool pool) {
+        this.baseline = baseline;
+        this.deals = deals;
+        this.usePreflopTable = preflopTable != null;
+        preflopStrength = new double[deals * 2];
+        chenScore = new double[deals * 2];
+        strength = new double[deals * 2 * STREETS];
+        category = new int[deals * 2 * STREETS];
+        winner = new int[deals];
+
+        long[] holeCards = new long[deals * 2];
+        long[] boards = new long[deals * STREETS];
+        Random random = new Random(seed);
+        int[] deck = new int[52];
+        for (int i = 0; i < deck.length; i++)
+            deck[i] = i;
+        for (int deal = 0; deal < deals; deal++) {
+            for (int i = 0; i < 9; i++) {
+                int pick = i + random.nextInt(deck.length - i);
+                int card = deck[pick];
+                deck[pick] = deck[i];
+                deck[i] = card;
+            }
+            holeCards[deal * 2] = 1L << deck[0] | 1L << deck[1];
+            holeCards[deal * 2 + 1] = 1L << deck[2] | 1L << deck[3];
+            long flop = 1L << deck[4] | 1L << deck[5] | 1L << deck[6];
+            boards[deal * STREETS + FLOP] = flop;
+            boards[deal * STREETS + TURN] = flop | 1L << deck[7];
+            boards[deal * STREETS + RIVER] = flop | 1L << deck[7] | 1L << deck[8];
+        }
+        pool.invoke(new PrepareDeals(holeCards, boards, preflopTable, new ParallelEvaluator(1), 0, deals));
+    }
+
+    /**
+     * A vector near {@code parameters}, every value moved by a normally
+     * distributed step of its own typical size.
+     */
+    public static double[] perturb(double[] parameters, Random random) {
+        double[] perturbed = parameters.clone();
+        for (int i = 0; i < perturbed.length; i++)
+            perturbed[i] += random.nextGaussian() * SPREAD[i];
+        return perturbed;
+    }
+
+    public int getDeals() {
+        return deals;
+    }
+
+    /**
+     * Big blinds per 100 hands that {@code candidate} wins from the baseline.
+     */
+    public double evaluate(Strategy candidate) {
+        Betting betting = new Betting();
+        long won = 0;
+        for (int deal = 0; deal < deals; deal++) {
+            won += play(deal, candidate, baseline, betting);
+            won -= play(deal, baseline, candidate, betting);
+        }
+        return 100.0 * won / BIG_BLIND / (2.0 * deals);
+    }
+
+    /**
+     * Scores every vector on {@code pool}.
+     */
+    public double[] evaluateAll(double[][] vectors, ForkJoinPool pool) {
+        double[] scores = new double[vectors.length];
+        pool.invoke(new EvaluateVectors(vectors, scores, 0, vectors.length));
+        return scores;
+    }
+
+    /**
+     * Plays one deal, seat 0 being the dealer and small blind.
+     *
+     * @param betting scratch space, reused from hand to hand
+     * @return the chips seat 0 wins, negative when it loses
+     */
+    long play(int deal, Strategy dealer, Strategy bigBlind, Betting betting) {
+        betting.invested[0] = SMALL_BLIND;
+        betting.invested[1] = BIG_BLIND;
+        for (int street = PREFLOP; street <= RIVER; street++) {
+            if (street > PREFLOP && betting.canAct(0) + betting.canAct(1) < 2)
+                continue;
+            int folded = bettingRound(deal, street, dealer, bigBlind, betting);
+            if (folded >= 0)
+                return folded == 0 ? -betting.invested[0] : betting.invested[1];
+        }
+        long matched = Math.min(betting.invested[0], betting.invested[1]);
+        return winner[deal] * matched;
+    }
+
+    /**
+     * @return the seat that folded, or -1
+     */
+    private int bettingRound(int deal, int street, Strategy dealer, Strategy bigBlind, Betting betting) {
+        long raiseSize = street < TURN ? BIG_BLIND : 2 * BIG_BLIND;
+        long[] round = betting.round;
+        round[0] = street == PREFLOP ? SMALL_BLIND : 0;
+        round[1] = street == PREFLOP ? BIG_BLIND : 0;
+        long highest = Math.max(round[0], round[1]);
+        int raises = 0;
+        int pending = betting.canAct(0) + betting.canAct(1);
+        for (int seat = street == PREFLOP ? 0 : 1; pending > 0; seat ^= 1) {
+            if (betting.canAct(seat) == 0)
+                continue;
+            pending--;
+            long chips = betting.chips(seat);
+            long toCall = highest - round[seat];
+            Strategy.Move move = decide(seat == 0 ? dealer : bigBlind, deal, seat, street,
+                    chips, betting.chips(seat ^ 1));
+            betting.opponentChips[0] = betting.chips(seat ^ 1);
+            switch (resolve(move, deal * 2 + seat, street, toCall, chips, raiseSize, raises < MAX_RAISES,
+                    betting.invested[0] + betting.invested[1], betting.opponentChips)) {
+                case FOLD:
+                    return seat;
+                case CALL:
+                    betting.bet(seat, toCall);
+                    break;
+                case RAISE:
+                    betting.bet(seat, toCall + raiseSize);
+                    highest = round[seat];
+                    raises++;
+                    pending = betting.canAct(seat ^ 1);
+                    break;
+                case ALL_IN:
+                    betting.bet(seat, chips);
+                    if (round[seat] > highest) {
+                        highest = round[seat];
+                        pending = betting.canAct(seat ^ 1);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return -1;
+    }
+
+    private Strategy.Move decide(Strategy strategy, int deal, int seat, int street, long myChips, long otherChips) {
+        int hand = deal * 2 + seat;
+        if (street == PREFLOP)
+            return usePreflopTable ? strategy.preFlop(preflopStrength[hand], 1)
+                    : strategy.preFlopByChen(chenScore[hand], 1);
+        int at = hand * STREETS + street;
+        return strategy.postFlop(strength[at], chenScore[hand], category[at], 1, myChips >= otherChips);
+    }
+
+    /**
+     * The move as KvargBot would play it with what {@link LocalTable} offers:
+     * before the flop the move itself, after it the action worth the most
+     * chips of those within the move, or a call instead of a fold when the
+     * pot pays for it. This is {@link ActionEvaluator#best} on amounts.
+     */
+    private ActionType resolve(Strategy.Move move, int hand, int street, long toCall, long chips, long raiseSize,
+                               boolean mayRaise, long pot, long[] opponentChips) {
+        ActionType limit = resolve(move, toCall, chips, raiseSize, mayRaise);
+        if (street == PREFLOP)
+            return limit;
+
+        double equity = Algorithms.potShare(strength[hand * STREETS + street], 1);
+        long futureBets = 2 * BIG_BLIND * (RIVER - street);
+        if (move == Strategy.Move.FOLD && offered(ActionType.CALL, toCall, chips, raiseSize, mayRaise) >= 0
+                && ActionEvaluator.value(ActionType.CALL, toCall, equity, pot, toCall, chips,
+                opponentChips, futureBets) > 0)
+            return ActionType.CALL;
+        long cap = offered(limit, toCall, chips, raiseSize, mayRaise);
+        ActionType best = limit;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (ActionType type : OFFERED) {
+            long amount = offered(type, toCall, chips, raiseSize, mayRaise);
+            if (amount < 0 || amount > cap)
+                continue;
+            double value = ActionEvaluator.value(type, amount, equity, pot, toCall, chips, opponentChips, futureBets);
+            if (value > bestValue) {
+                best = type;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return what an action of {@code type} puts in, -1 when it is not on offer
+     */
+    private static long offered(ActionType type, long toCall, long chips, long raiseSize, boolean mayRaise) {
+        switch (type) {
+            case CHECK:
+                return toCall == 0 ? 0 : -1;
+            case CALL:
+                return toCall > 0 && chips > toCall ? toCall : -1;
+            case RAISE:
+                return mayRaise && chips > toCall + raiseSize ? toCall + raiseSize : -1;
+            case ALL_IN:
+                return chips;
+            default:
+                return 0;
+        }
+    }
+
+    private static ActionType resolve(Strategy.Move move, long toCall, long chips, long raiseSize, boolean mayRaise) {
+        switch (move) {
+            case ALL_IN:
+                return ActionType.ALL_IN;
+            case RAISE:
+            case RAISE_OR_ALL_IN:
+                if (mayRaise && chips > toCall + raiseSize)
+                    return ActionType.RAISE;
+            case CALL:
+                if (toCall > 0 && chips > toCall)
+                    return ActionType.CALL;
+            default:
+                if (toCall == 0)
+                    return ActionType.CHECK;
+                return move == Strategy.Move.RAISE_OR_ALL_IN ? ActionType.ALL_IN : ActionType.FOLD;
+        }
+    }
+
+    public static void main(String... args) {
+        int vectors = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int deals = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 4711;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        PreflopTable preflopTable = PreflopTable.loadDefault();
+        long start = System.nanoTime();
+        StrategyTuner tuner = new StrategyTuner(ThresholdStrategy.DEFAULT, deals, seed, preflopTable, pool);
+        System.out.printf("Prepared %d deals in %.1f s%n", deals, (System.nanoTime() - start) / 1e9);
+
+        // the defaults go first as a check, they must score zero
+        Random random = new Random(seed);
+        double[][] parameters = new double[vectors][];
+        parameters[0] = ThresholdStrategy.defaultParameters();
+        for (int i = 1; i < vectors; i++)
+            parameters[i] = perturb(parameters[0], random);
+
+        start = System.nanoTime();
+        final double[] scores = tuner.evaluateAll(parameters, pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d vectors in %.1f s: %.0f hands/s, defaults %+.2f bb/100%n",
+                vectors, seconds, 2.0 * deals * vectors / seconds, scores[0]);
+
+        Integer[] ranking = new Integer[vectors];
+        for (int i = 0; i < vectors; i++)
+            ranking[i] = i;
+        Arrays.sort(ranking, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(scores[b], scores[a]);
+            }
+        });
+
+        // the best scores are partly luck of the corpus, so check them on deals they were not picked on
+        StrategyTuner validation = new StrategyTuner(ThresholdStrategy.DEFAULT, deals, seed + 1, preflopTable, pool);
+        int top = Math.min(10, vectors);
+        double[][] best = new double[top][];
+        for (int i = 0; i < top; i++)
+            best[i] = parameters[ranking[i]];
+        double[] validated = validation.evaluateAll(best, pool);
+        System.out.printf("%10s %10s  parameters%n", "bb/100", "validated");
+        for (int i = 0; i < top; i++)
+            System.out.printf("%+10.2f %+10.2f  %s%n", scores[ranking[i]], validated[i], new ThresholdStrategy(best[i]));
+        pool.shutdown();
+    }
+
+    /**
+     * The chips each seat has put in, in the hand and in this betting round,
+     * and the chips behind of the seat the one acting plays against.
+     */
+    static final class Betting {
+        final long[] invested = new long[2];
+        final long[] round = new long[2];
+        final long[] opponentChips = new long[1];
+
+        long chips(int seat) {
+            return STARTING_CHIPS - invested[seat];
+        }
+
+        int canAct(int seat) {
+            return chips(seat) > 0 ? 1 : 0;
+        }
+
+        void bet(int seat, long amount) {
+            amount = Math.min(amount, chips(seat));
+            invested[seat] += amount;
+            round[seat] += amount;
+        }
+    }
+
+    private class EvaluateVectors extends RecursiveAction {
+        private final double[][] vectors;
+        private final double[] scores;
+        private final int from;
+        private final int to;
+
+        EvaluateVectors(double[][] vectors, double[] scores, int from, int to) {
+            this.vectors = vectors;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EvaluateVectors(vectors, scores, from, middle),
+                        new EvaluateVectors(vectors, scores, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++)
+                scores[i] = evaluate(new ThresholdStrategy(vectors[i]));
+        }
+    }
+
+    private class PrepareDeals extends RecursiveAction {
+        private final long[] holeCards;
+        private final long[] boards;
+        private final PreflopTable preflopTable;
+        private final ParallelEvaluator evaluator;
+        private final int from;
+        private final int to;
+
+        PrepareDeals(long[] holeCards, long[] boards, PreflopTable preflopTable,
+                     ParallelEvaluator evaluator, int from, int to) {
+            this.holeCards = holeCards;
+            this.boards = boards;
+            this.preflopTable = preflopTable;
+            this.evaluator = evaluator;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PrepareDeals(holeCards, boards, preflopTable, evaluator, from, middle),
+                        new PrepareDeals(holeCards, boards, preflopTable, evaluator, middle, to));
+                return;
+            }
+            for (int deal = from; deal < to; deal++) {
+                for (int seat = 0; seat < 2; seat++)
+                    prepare(deal, seat);
+                long board = boards[deal * STREETS + RIVER];
+                winner[deal] = Integer.signum(Integer.compare(
+                        HandEvaluator.evaluate(holeCards[deal * 2] | board),
+                        HandEvaluator.evaluate(holeCards[deal * 2 + 1] | board)));
+            }
+        }
+
+        private void prepare(int deal, int seat) {
+            int hand = deal * 2 + seat;
+            long hole = holeCards[hand];
+            int first = Long.numberOfTrailingZeros(hole);
+            int second = Long.numberOfTrailingZeros(hole & ~(1L << first));
+            chenScore[hand] = Algorithms.computeChenFormula(HandEvaluator.card(first), HandEvaluator.card(second));
+            if (preflopTable != null)
+                preflopStrength[hand] = preflopTable.getEquity(hole, 1);
+            EquitySimulator simulator = new EquitySimulator(hand + 1);
+            for (int street = FLOP; street <= RIVER; street++) {
+                long board = boards[deal * STREETS + street];
+                int at = hand * STREETS + street;
+                int rank = HandEvaluator.evaluate(hole | board);
+                category[at] = HandEvaluator.category(rank);
+                // what KvargBot uses with time to spare: simulated equity, enumerated strength on the river
+                strength[at] = street == RIVER
+                        ? evaluator.handStrength(rank, board, HandEvaluator.FULL_DECK & ~(hole | board))
+                        : simulator.simulate(hole, board, 1, Long.MAX_VALUE, 0, EQUITY_SAMPLES).getEquity();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package se.cygni.texasholdem.player;
+
+/**
+ * The betting rounds of a hand, named by how much of the board is out.
+ */
+public enum Street {
+    PRE_FLOP, FLOP, TURN, RIVER;
+
+    public static Street fromBoardSize(int boardSize) {
+        switch (boardSize) {
+            case 0: return PRE_FLOP;
+            case 3: return FLOP;
+            case 4: return TURN;
+            default: return RIVER;
+        }
+    }
+}
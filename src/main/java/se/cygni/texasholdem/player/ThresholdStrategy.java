@@ -0,0 +1,156 @@
+package se.cygni.texasholdem.player;
+
+import java.util.Arrays;
+
+/**
+ * The strategy KvargBot has always played: every decision compares a
+ * strength with a threshold. All thresholds and adjustments come from one
+ * parameter vector, indexed by the constants below, so that
+ * {@link StrategyTuner} can search for better ones.
+ */
+public final class ThresholdStrategy implements Strategy {
+
+    /** Post flop strength above which we go all in. */
+    public static final int ALL_IN = 0;
+    /** Post flop strength above which we raise. */
+    public static final int RAISE = 1;
+    /** Post flop strength above which we call. */
+    public static final int CALL = 2;
+    /** Added to the post flop strength before deciding to call heads up. */
+    public static final int HEADS_UP_BONUS = 3;
+    /** Post flop strength above which we go all in with less than three of a kind or fewer chips. */
+    public static final int SURE_ALL_IN = 4;
+    /** Chen score above which we raise preflop. */
+    public static final int CHEN_RAISE = 5;
+    /** Chen score from which we call preflop. */
+    public static final int CHEN_CALL = 6;
+    /** Chen score from which we call preflop heads up. */
+    public static final int CHEN_HEADS_UP_CALL = 7;
+    /** Preflop table strength above which we raise. */
+    public static final int TABLE_RAISE = 8;
+    /** Preflop table strength from which we call. */
+    public static final int TABLE_CALL = 9;
+    /** Preflop table strength from which we call heads up. */
+    public static final int TABLE_HEADS_UP_CALL = 10;
+    /** Post flop strength adjustment for a Chen score above 15. */
+    public static final int ADJUST_PREMIUM = 11;
+    /** Post flop strength adjustment for a Chen score above 11. */
+    public static final int ADJUST_STRONG = 12;
+    /** Post flop strength adjustment for a Chen score above 7. */
+    public static final int ADJUST_FAIR = 13;
+    /** Post flop strength adjustment for a Chen score above 0. */
+    public static final int ADJUST_WEAK = 14;
+    /** Post flop strength adjustment for the rest. */
+    public static final int ADJUST_TRASH = 15;
+
+    public static final int PARAMETERS = 16;
+
+    static final String[] NAMES = {
+            "allIn", "raise", "call", "headsUpBonus", "sureAllIn",
+            "chenRaise", "chenCall", "chenHeadsUpCall",
+            "tableRaise", "tableCall", "tableHeadsUpCall",
+            "adjustPremium", "adjustStrong", "adjustFair", "adjustWeak", "adjustTrash"
+    };
+
+    private static final double[] DEFAULTS = {
+            0.9, 0.7, 0.5, 0.2, 0.95,
+            11, 7, 3,
+            0.65, 0.55, 0.45,
+            0.15, 0.1, 0, -0.1, -0.2
+    };
+
+    public static final ThresholdStrategy DEFAULT = new ThresholdStrategy(DEFAULTS);
+
+    private final double[] parameters;
+
+    /**
+     * @param parameters {@value #PARAMETERS} values indexed by the constants of this class
+     */
+    public ThresholdStrategy(double[] parameters) {
+        if (parameters.length != PARAMETERS)
+            throw new IllegalArgumentException("Expected " + PARAMETERS + " parameters, got " + parameters.length);
+        this.parameters = parameters.clone();
+    }
+
+    public static double[] defaultParameters() {
+        return DEFAULTS.clone();
+    }
+
+    public double[] getParameters() {
+        return parameters.clone();
+    }
+
+    public double getParameter(int index) {
+        return parameters[index];
+    }
+
+    @Override
+    public Move preFlop(double strength, int opponents) {
+        if (strength > parameters[TABLE_RAISE])
+            return Move.RAISE;
+        if (strength >= parameters[TABLE_CALL])
+            return Move.CALL;
+        if (opponents == 1 && strength >= parameters[TABLE_HEADS_UP_CALL])
+            return Move.CALL;
+        return Move.FOLD;
+    }
+
+    @Override
+    public Move preFlopByChen(double chenScore, int opponents) {
+        if (chenScore > parameters[CHEN_RAISE])
+            return Move.RAISE;
+        if (chenScore >= parameters[CHEN_CALL])
+            return Move.CALL;
+        if (opponents == 1 && chenScore >= parameters[CHEN_HEADS_UP_CALL])
+            return Move.CALL;
+        return Move.FOLD;
+    }
+
+    @Override
+    public Move postFlop(double strength, double chenScore, int handCategory, int opponents, boolean mostChips) {
+        strength += chenAdjustment(chenScore);
+        if (strength > parameters[ALL_IN]) {
+            if (handCategory < HandEvaluator.THREE_OF_A_KIND)
+                return Move.RAISE_OR_ALL_IN;
+            // without the most chips all in seems unsafe unless we are very sure
+            return strength > parameters[SURE_ALL_IN] || mostChips ? Move.ALL_IN : Move.RAISE_OR_ALL_IN;
+        }
+        if (strength > parameters[RAISE])
+            return Move.RAISE;
+        if (opponents == 1)
+            strength += parameters[HEADS_UP_BONUS];
+        if (strength > parameters[CALL])
+            return Move.CALL;
+        return Move.FOLD;
+    }
+
+    double chenAdjustment(double chenScore) {
+        if (chenScore > 15)
+            return parameters[ADJUST_PREMIUM];
+        if (chenScore > 11)
+            return parameters[ADJUST_STRONG];
+        if (chenScore > 7)
+            return parameters[ADJUST_FAIR];
+        if (chenScore > 0)
+            return parameters[ADJUST_WEAK];
+        return parameters[ADJUST_TRASH];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ThresholdStrategy && Arrays.equals(parameters, ((ThresholdStrategy) o).parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(parameters);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < PARAMETERS; i++)
+            sb.append(i == 0 ? "" : " ").append(NAMES[i]).append('=').append(String.format("%.3f", parameters[i]));
+        return sb.toString();
+    }
+}
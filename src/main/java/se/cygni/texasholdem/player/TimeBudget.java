@@ -0,0 +1,120 @@
+package se.cygni.texasholdem.player;
+
+/**
+ * Decides how long a decision may think, given the server action timeout
+ * and the round trip times we have seen lately.
+ * <p/>
+ * The round trip is measured from returning an action until the server
+ * echoes it back as an event about us. Whatever the timeout leaves after a
+ * round trip and a safety margin is split in half, kept above a small floor
+ * and capped by the configured maximum. The budget also says how much time
+ * the tiers of a decision need: a simulation is not started with less than
+ * the minimum, and the river is only counted exactly with the enumeration
+ * reserve left.
+ */
+public class TimeBudget {
+
+    public static final String MAX_BUDGET_PROPERTY = "kvargbot.maxBudgetMillis";
+    public static final String DEFAULT_MAX_BUDGET_MILLIS = "150";
+
+    public static final long DEFAULT_MIN_SIMULATION_NANOS = 1000000L;
+    public static final long DEFAULT_ENUMERATION_RESERVE_NANOS = 5 * 1000000L;
+
+    private static final long MIN_BUDGET_NANOS = 2 * 1000000L;
+    private static final double SAFETY_MARGIN = 0.2;
+    private static final double WORK_SHARE = 0.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final long timeoutNanos;
+    private final long maxBudgetNanos;
+    private final long minSimulationNanos;
+    private final long enumerationReserveNanos;
+
+    private volatile long roundTripNanos;
+    private volatile long actionSentNanos;
+
+    /**
+     * A budget capped by {@value #MAX_BUDGET_PROPERTY} milliseconds, which may
+     * be fractional.
+     */
+    public TimeBudget(long actionTimeoutMillis) {
+        this(actionTimeoutMillis, maxBudgetNanos(DEFAULT_MAX_BUDGET_MILLIS));
+    }
+
+    public TimeBudget(long actionTimeoutMillis, long maxBudgetNanos) {
+        this(actionTimeoutMillis, maxBudgetNanos, DEFAULT_MIN_SIMULATION_NANOS, DEFAULT_ENUMERATION_RESERVE_NANOS);
+    }
+
+    /**
+     * A budget whose tiers fit a cap well below what the server allows,
+     * e.g. for self-play.
+     */
+    public TimeBudget(long actionTimeoutMillis, long maxBudgetNanos, long minSimulationNanos,
+                      long enumerationReserveNanos) {
+        this.timeoutNanos = actionTimeoutMillis * 1000000L;
+        this.maxBudgetNanos = maxBudgetNanos;
+        this.minSimulationNanos = minSimulationNanos;
+        this.enumerationReserveNanos = enumerationReserveNanos;
+    }
+
+    /**
+     * @return the cap given by {@value #MAX_BUDGET_PROPERTY}, or {@code defaultMillis}
+     */
+    public static long maxBudgetNanos(String defaultMillis) {
+        return (long) (1e6 * Double.parseDouble(System.getProperty(MAX_BUDGET_PROPERTY, defaultMillis)));
+    }
+
+    /**
+     * @param startNanos when the action request arrived
+     * @return the {@link System#nanoTime()} by which the decision should be made
+     */
+    public long deadline(long startNanos) {
+        long available = (long) (timeoutNanos * (1 - SAFETY_MARGIN)) - roundTripNanos;
+        long budget = Math.min(maxBudgetNanos, Math.max(MIN_BUDGET_NANOS, (long) (available * WORK_SHARE)));
+        return startNanos + budget;
+    }
+
+    /**
+     * How long to wait for a decision before answering with a fallback
+     * action: what the timeout leaves after the round trip and safety margin.
+     */
+    public long fallbackNanos() {
+        long available = (long) (timeoutNanos * (1 - SAFETY_MARGIN)) - roundTripNanos;
+        return Math.max(MIN_BUDGET_NANOS, available);
+    }
+
+    public void actionSent() {
+        actionSentNanos = System.nanoTime();
+    }
+
+    /**
+     * Called when the server tells everyone about the action we sent.
+     */
+    public void actionAcknowledged() {
+        long sent = actionSentNanos;
+        if (sent == 0)
+            return;
+        actionSentNanos = 0;
+        long roundTrip = System.nanoTime() - sent;
+        long previous = roundTripNanos;
+        roundTripNanos = previous == 0 ? roundTrip : (long) (previous + SMOOTHING * (roundTrip - previous));
+    }
+
+    public long getRoundTripNanos() {
+        return roundTripNanos;
+    }
+
+    /**
+     * The least time left for which a simulation is worth starting.
+     */
+    public long getMinSimulationNanos() {
+        return minSimulationNanos;
+    }
+
+    /**
+     * The time left that an exact count on the river needs.
+     */
+    public long getEnumerationReserveNanos() {
+        return enumerationReserveNanos;
+    }
+}
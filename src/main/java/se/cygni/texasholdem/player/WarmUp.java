@@ -0,0 +1,121 @@
+package se.cygni.texasholdem.player;
+
+import ch.qos.logback.classic.Level;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.cygni.texasholdem.client.CurrentPlayState;
+import se.cygni.texasholdem.game.Player;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plays bots against each other on a {@link LocalTable} before the first
+ * real connection, so that the first decisions on the server are made by
+ * compiled code rather than by the interpreter.
+ * <p/>
+ * Hands are played in rounds on seeded decks until a round passes with
+ * hardly any JIT compilation, or until {@value #MILLIS_PROPERTY}
+ * milliseconds have passed. Zero turns the warm-up off. It runs once per
+ * JVM, however many bots share it. The bots share the given context, so
+ * its caches are filled as a side effect; they keep no history and
+ * publish no metrics, and their logging is held back to warnings.
+ * <p/>
+ * Run on its own, e.g. to record the classes for a class data sharing
+ * archive: WarmUp [max millis]
+ */
+public class WarmUp {
+
+    private static Logger log = LoggerFactory.getLogger(WarmUp.class);
+
+    public static final String MILLIS_PROPERTY = "kvargbot.warmUpMillis";
+    public static final long DEFAULT_MILLIS = 10000;
+
+    private static final int SEATS = 4;
+    private static final int HANDS_PER_ROUND = 50;
+    private static final int MIN_ROUNDS = 3;
+    // without a compilation monitor there is no telling when to stop
+    private static final int UNMONITORED_ROUNDS = 40;
+    private static final long QUIET_COMPILATION_MILLIS = 5;
+    private static final long SEED = 20140420L;
+
+    private static final AtomicBoolean WARMED_UP = new AtomicBoolean();
+
+    /**
+     * Warms up for at most {@value #MILLIS_PROPERTY} milliseconds, unless
+     * this JVM has already been warmed up.
+     */
+    public static void run(EvaluationContext context) {
+        long maxMillis = Long.getLong(MILLIS_PROPERTY, DEFAULT_MILLIS);
+        if (maxMillis > 0 && WARMED_UP.compareAndSet(false, true))
+            run(context, maxMillis);
+    }
+
+    /**
+     * @return the number of hands played
+     */
+    public static long run(final EvaluationContext context, long maxMillis) {
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        long compilationMillis = monitored ? compiler.getTotalCompilationTime() : 0;
+        long startCompilationMillis = compilationMillis;
+
+        PlayerFactory warmUpBot = new PlayerFactory() {
+            @Override
+            public Player create(String name, CurrentPlayState playState) {
+                return new KvargBot(name, playState, context, HandHistoryRecorder.disabled());
+            }
+        };
+        Logger botLogger = LoggerFactory.getLogger(KvargBot.class);
+        Level botLevel = null;
+        if (botLogger instanceof ch.qos.logback.classic.Logger) {
+            botLevel = ((ch.qos.logback.classic.Logger) botLogger).getLevel();
+            ((ch.qos.logback.classic.Logger) botLogger).setLevel(Level.WARN);
+        }
+
+        long hands = 0;
+        int rounds = 0;
+        try {
+            while (System.nanoTime() < deadline) {
+                LocalTable table = new LocalTable(rounds, SEED + rounds, 10000, 20, 1000);
+                for (int i = 0; i < SEATS; i++)
+                    table.addSeat("warmup", warmUpBot);
+                table.play(HANDS_PER_ROUND);
+                hands += table.getHandsPlayed();
+                rounds++;
+
+                if (!monitored) {
+                    if (rounds >= UNMONITORED_ROUNDS)
+                        break;
+                    continue;
+                }
+                long compiled = compiler.getTotalCompilationTime();
+                boolean quiet = compiled - compilationMillis < QUIET_COMPILATION_MILLIS;
+                compilationMillis = compiled;
+                if (quiet && rounds >= MIN_ROUNDS)
+                    break;
+            }
+        } finally {
+            if (botLogger instanceof ch.qos.logback.classic.Logger)
+                ((ch.qos.logback.classic.Logger) botLogger).setLevel(botLevel);
+        }
+        log.info("Warmed up on {} hands in {} ms, {} ms of it compiling", hands,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                monitored ? compilationMillis - startCompilationMillis : "unknown");
+        return hands;
+    }
+
+    public static void main(String... args) {
+        long maxMillis = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_MILLIS;
+        EvaluationContext context = EvaluationContext.fromSystemProperties();
+        try {
+            run(context, maxMillis);
+        } finally {
+            context.shutdown();
+        }
+    }
+}
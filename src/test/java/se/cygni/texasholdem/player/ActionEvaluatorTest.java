@@ -0,0 +1,69 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.Test;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ActionEvaluatorTest {
+
+    private static final Action FOLD = SimulatedEvents.action(ActionType.FOLD, 0);
+    private static final Action CHECK = SimulatedEvents.action(ActionType.CHECK, 0);
+
+    @Test
+    public void foldCheckAndCallAreValuedOnThePotNow() {
+        ActionEvaluator values = new ActionEvaluator(0.3, 100, 0, 500, new long[]{500}, 0);
+        assertEquals(0, values.value(FOLD), 1e-9);
+        assertEquals(30, values.value(CHECK), 1e-9);
+        assertEquals(0.3 * (100 + 40) - 40, values.value(SimulatedEvents.action(ActionType.CALL, 40)), 1e-9);
+    }
+
+    @Test
+    public void raiseIsCalledAsFarAsEachOpponentCan() {
+        ActionEvaluator values = new ActionEvaluator(0.5, 100, 0, 500, new long[]{20, 100}, 0);
+        assertEquals(0.5 * (100 + 50 + 20 + 50) - 50,
+                values.value(SimulatedEvents.action(ActionType.RAISE, 50)), 1e-9);
+    }
+
+    /**
+     * Going all in for less than we owe raises nobody, so no opponent adds
+     * chips for it.
+     */
+    @Test
+    public void shortAllInIsNotCalled() {
+        ActionEvaluator values = new ActionEvaluator(0.4, 300, 100, 40, new long[]{1000, 1000}, 0);
+        assertEquals(0.4 * (300 + 40) - 40, values.value(SimulatedEvents.action(ActionType.ALL_IN, 40)), 1e-9);
+    }
+
+    @Test
+    public void streetsToComeCountOnlyWithMoreThanAFairShare() {
+        long[] opponent = {1000};
+        assertEquals(0.8 * 100 + 40 * (2 * 0.8 - 1),
+                new ActionEvaluator(0.8, 100, 0, 500, opponent, 40).value(CHECK), 1e-9);
+        assertEquals(0.2 * 100, new ActionEvaluator(0.2, 100, 0, 500, opponent, 40).value(CHECK), 1e-9);
+        assertEquals(0.8 * 100 + 10 * (2 * 0.8 - 1),
+                new ActionEvaluator(0.8, 100, 0, 10, opponent, 40).value(CHECK), 1e-9);
+    }
+
+    @Test
+    public void bestStaysWithinTheCap() {
+        ActionEvaluator values = new ActionEvaluator(0.9, 100, 20, 500, new long[]{500}, 0);
+        Action call = SimulatedEvents.action(ActionType.CALL, 20);
+        Action raise = SimulatedEvents.action(ActionType.RAISE, 40);
+        Action allIn = SimulatedEvents.action(ActionType.ALL_IN, 500);
+
+        assertSame(allIn, values.best(allIn, FOLD, call, raise, allIn));
+        assertSame(raise, values.best(raise, FOLD, call, null, raise, allIn));
+        assertSame(call, values.best(call, FOLD, call, raise, allIn));
+    }
+
+    @Test
+    public void bestFoldsWeakHandsAndFallsBackToTheCap() {
+        ActionEvaluator values = new ActionEvaluator(0.1, 100, 50, 500, new long[]{500}, 0);
+        Action call = SimulatedEvents.action(ActionType.CALL, 50);
+        assertSame(FOLD, values.best(call, FOLD, call));
+        assertSame(call, values.best(call, null, SimulatedEvents.action(ActionType.RAISE, 100)));
+    }
+}
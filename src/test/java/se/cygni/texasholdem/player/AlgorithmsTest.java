@@ -0,0 +1,87 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.After;
+import org.junit.Test;
+import se.cygni.texasholdem.game.Card;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AlgorithmsTest {
+
+    private final EvaluationContext context = EvaluationContext.basic();
+    private final Algorithms algorithms = new Algorithms(context);
+
+    @After
+    public void shutdown() {
+        context.shutdown();
+    }
+
+    private static List<Card> list(String cards) {
+        List<Card> list = new ArrayList<>();
+        PrimitiveCards.toCards(HandEvaluatorTest.cards(cards), list);
+        return list;
+    }
+
+    private void deal(String mine, String board) {
+        for (Card card : list(mine))
+            algorithms.addMyCard(card);
+        for (Card card : list(board))
+            algorithms.addCommunityCard(card);
+    }
+
+    @Test
+    public void followsTheDealtCards() {
+        deal("As Kd", "7c 8d 2h");
+        assertEquals(HandEvaluator.evaluate(HandEvaluatorTest.cards("As Kd 7c 8d 2h")), algorithms.getMyHandRank());
+        long board = HandEvaluatorTest.cards("7c 8d 2h");
+        double expected = context.getEvaluator().handStrength(algorithms.getMyHandRank(), board,
+                HandEvaluator.FULL_DECK & ~(board | HandEvaluatorTest.cards("As Kd")));
+        assertEquals(expected, algorithms.getHandStrength(), 0);
+
+        algorithms.addCommunityCard(list("Ah").get(0));
+        assertEquals(HandEvaluator.ONE_PAIR, HandEvaluator.category(algorithms.getMyHandRank()));
+        assertTrue(algorithms.getHandStrength() > expected);
+    }
+
+    @Test
+    public void equityIsKeptUntilTheNextCard() {
+        deal("As Kd", "7c 8d 2h");
+        long deadline = System.nanoTime() + 50000000L;
+        EquityResult equity = algorithms.getEquity(2, deadline);
+        assertSame(equity, algorithms.getEquity(2, deadline));
+
+        // in sync with the play state: nothing is thrown away
+        algorithms.sync(list("As Kd"), list("7c 8d 2h"));
+        assertSame(equity, algorithms.getEquity(2, deadline));
+
+        algorithms.addCommunityCard(list("Ah").get(0));
+        assertFalse(equity == algorithms.getEquity(2, System.nanoTime() + 50000000L));
+    }
+
+    @Test
+    public void syncCatchesUpWithAMissedCard() {
+        deal("As Kd", "7c 8d 2h");
+        double flopStrength = algorithms.getHandStrength();
+        algorithms.sync(list("As Kd"), list("7c 8d 2h Ah"));
+        assertEquals(HandEvaluator.evaluate(HandEvaluatorTest.cards("As Kd 7c 8d 2h Ah")),
+                algorithms.getMyHandRank());
+        assertTrue(algorithms.getHandStrength() != flopStrength);
+    }
+
+    @Test
+    public void potShareUndoesHeadsUpStrength() {
+        for (int opponents = 1; opponents <= 8; opponents++) {
+            for (double equity = 0; equity <= 1; equity += 0.05) {
+                double strength = Algorithms.headsUpStrength(equity, opponents);
+                assertEquals(equity, Algorithms.potShare(strength, opponents), 1e-9);
+            }
+            assertEquals(0.5, Algorithms.headsUpStrength(1.0 / (opponents + 1), opponents), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.Test;
+import se.cygni.texasholdem.game.Card;
+import se.cygni.texasholdem.game.Hand;
+import se.cygni.texasholdem.game.definitions.Rank;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertSame;
+
+public class CardUtilsTest {
+
+    private static Hand hand(String cards) {
+        List<Card> list = new ArrayList<>();
+        PrimitiveCards.toCards(HandEvaluatorTest.cards(cards), list);
+        return new Hand(list, null, false);
+    }
+
+    @Test
+    public void wheelIsFiveHigh() {
+        assertSame(Rank.FIVE, CardUtils.getStraightRank(hand("As 2d 3c 4h 5s Kd 9c")));
+        assertSame(Rank.ACE, CardUtils.getStraightRank(hand("Ts Jd Qc Kh As 9c 8d")));
+    }
+
+    @Test
+    public void noStraightOrFlushFallsBackToTheHighCard() {
+        assertSame(Rank.KING, CardUtils.getStraightRank(hand("Kc 2d 3c 4h 7s")));
+        assertSame(Rank.KING, CardUtils.getFlushRank(hand("Kc 2d 3c 4h 7s")));
+    }
+
+    @Test
+    public void flushRankIsTheTopFlushCard() {
+        assertSame(Rank.QUEEN, CardUtils.getFlushRank(hand("2s 4s 6s 8s Ts Qs Ad")));
+    }
+
+    @Test
+    public void twoTripsGiveTheHigherOne() {
+        assertSame(Rank.NINE, CardUtils.getThreeOfAKindRank(hand("7c 7d 7h 9c 9d 9s As")));
+    }
+
+    @Test
+    public void threePairsGiveTheHighestPair() {
+        Hand hand = hand("Kc Kd 5h 5s 2c 2d Ah");
+        assertSame(Rank.KING, CardUtils.getHighestTwoPairRank(hand));
+        assertSame(Rank.KING, CardUtils.getPairRank(hand));
+        assertSame(Rank.ACE, CardUtils.getHighHandRank(hand));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void missingPairThrows() {
+        CardUtils.getPairRank(hand("Kc Qd 5h 4s 2c"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void missingTripsThrows() {
+        CardUtils.getThreeOfAKindRank(hand("Kc Kd 5h 4s 2c"));
+    }
+}
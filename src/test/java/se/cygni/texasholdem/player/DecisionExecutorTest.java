@@ -0,0 +1,198 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.After;
+import org.junit.Test;
+import se.cygni.texasholdem.client.CurrentPlayState;
+import se.cygni.texasholdem.communication.message.event.PlayerCheckedEvent;
+import se.cygni.texasholdem.communication.message.request.ActionRequest;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+import se.cygni.texasholdem.game.Player;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DecisionExecutorTest {
+
+    /**
+     * Gives the client 40 ms to wait for a decision.
+     */
+    private static final long ACTION_TIMEOUT_MILLIS = 50;
+
+    private static final Action CHECK = SimulatedEvents.action(ActionType.CHECK, 0);
+    private static final Action RAISE = SimulatedEvents.action(ActionType.RAISE, 20);
+
+    private final DecisionExecutor executor = DecisionExecutor.pool(2);
+    private final TimeBudget budget = new TimeBudget(ACTION_TIMEOUT_MILLIS, 1000000L);
+    private final ActionRequest request = SimulatedEvents.actionRequest(
+            Arrays.asList(SimulatedEvents.action(ActionType.FOLD, 0), CHECK, RAISE));
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Raises once {@code release} opens, claiming the answer either before
+     * or after waiting for it. Events wait for {@code events} to open.
+     */
+    private static class LatchedPlayer extends CallingStation implements DecisionExecutor.TimedPlayer {
+
+        final CountDownLatch claimed = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch events;
+        final CountDownLatch fallbackSent = new CountDownLatch(1);
+        final AtomicInteger decisions = new AtomicInteger();
+        final boolean claimFirst;
+        volatile boolean won;
+        volatile Action fallback;
+
+        LatchedPlayer(boolean claimFirst, boolean blockEvents) {
+            super("latched");
+            this.claimFirst = claimFirst;
+            this.events = new CountDownLatch(blockEvents ? 1 : 0);
+        }
+
+        @Override
+        public Callable<Action> prepare(ActionRequest request, long arrivalNanos, final AtomicBoolean answered) {
+            return new Callable<Action>() {
+                @Override
+                public Action call() {
+                    return decide(answered);
+                }
+            };
+        }
+
+        private Action decide(AtomicBoolean answered) {
+            decisions.incrementAndGet();
+            if (claimFirst) {
+                won = answered.compareAndSet(false, true);
+                claimed.countDown();
+            }
+            await(release);
+            if (!claimFirst)
+                won = answered.compareAndSet(false, true);
+            return RAISE;
+        }
+
+        @Override
+        public void fallbackSent(ActionRequest request, Action fallback, long nanos) {
+            this.fallback = fallback;
+            fallbackSent.countDown();
+        }
+
+        @Override
+        public void onPlayerChecked(PlayerCheckedEvent event) {
+            await(events);
+        }
+
+        static void await(CountDownLatch latch) {
+            try {
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private FutureTask<Action> ask(final Player player) {
+        FutureTask<Action> answer = new FutureTask<>(new Callable<Action>() {
+            @Override
+            public Action call() {
+                return player.actionRequired(request);
+            }
+        });
+        new Thread(answer, "client").start();
+        return answer;
+    }
+
+    /**
+     * The bot claims the answer, then the client gives up waiting and loses
+     * the claim: it has to wait for and send the bot's action.
+     */
+    @Test
+    public void answerClaimedWhileTheClientGivesUpIsSent() throws Exception {
+        LatchedPlayer bot = new LatchedPlayer(true, false);
+        FutureTask<Action> answer = ask(executor.isolate(bot, budget));
+        LatchedPlayer.await(bot.claimed);
+        Thread.sleep(3 * budget.fallbackNanos() / 1000000L);
+        assertFalse(answer.isDone());
+        bot.release.countDown();
+
+        assertSame(RAISE, answer.get(10, TimeUnit.SECONDS));
+        assertTrue(bot.won);
+        assertEquals(0, executor.getFallbacks());
+        assertEquals(1, bot.fallbackSent.getCount());
+    }
+
+    @Test
+    public void lateDecisionLosesToTheFallback() throws Exception {
+        LatchedPlayer bot = new LatchedPlayer(false, false);
+        FutureTask<Action> answer = ask(executor.isolate(bot, budget));
+
+        assertSame(CHECK, answer.get(10, TimeUnit.SECONDS));
+        bot.release.countDown();
+        LatchedPlayer.await(bot.fallbackSent);
+        assertSame(CHECK, bot.fallback);
+        assertFalse(bot.won);
+        assertEquals(1, executor.getFallbacks());
+    }
+
+    @Test
+    public void decisionQueuedPastTheFallbackIsSkipped() throws Exception {
+        LatchedPlayer bot = new LatchedPlayer(true, true);
+        Player player = executor.isolate(bot, budget);
+        player.onPlayerChecked(null);
+        FutureTask<Action> answer = ask(player);
+
+        assertSame(CHECK, answer.get(10, TimeUnit.SECONDS));
+        bot.release.countDown();
+        bot.events.countDown();
+        LatchedPlayer.await(bot.fallbackSent);
+        assertEquals(0, bot.decisions.get());
+        assertEquals(1, executor.getFallbacks());
+    }
+
+    /**
+     * Bots decide on the pool from snapshots while the table goes on
+     * updating their play states, as the client does online.
+     */
+    @Test
+    public void botsPlayALocalTableThroughThePool() {
+        final EvaluationContext context = EvaluationContext.basic();
+        try {
+            PlayerFactory isolated = new PlayerFactory() {
+                @Override
+                public Player create(String name, CurrentPlayState playState) {
+                    KvargBot bot = new KvargBot(name, playState, context, HandHistoryRecorder.disabled());
+                    return executor.isolate(bot, bot.getTimeBudget());
+                }
+            };
+            LocalTable table = new LocalTable(1, 29, 1000, 20, 1000);
+            table.addSeat("bot", isolated);
+            table.addSeat("bot", isolated);
+            table.addSeat("station", new PlayerFactory() {
+                @Override
+                public Player create(String name, CurrentPlayState playState) {
+                    return new CallingStation(name);
+                }
+            });
+            table.play(100);
+            for (LocalTable.Seat seat : table.getSeats())
+                assertEquals(0, seat.getForcedFolds());
+            assertEquals(0, executor.getFallbacks());
+        } finally {
+            context.shutdown();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HandEvaluatorTest {
+
+    private static final String RANKS = "23456789TJQKA";
+    private static final String SUITS = "cdhs";
+
+    /**
+     * Cards written as rank and suit, e.g. {@code "As Kd 7c"}.
+     */
+    static long cards(String cards) {
+        long mask = 0;
+        for (String card : cards.trim().split("\\s+"))
+            mask |= 1L << (SUITS.indexOf(card.charAt(1)) * 13 + RANKS.indexOf(card.charAt(0)));
+        return mask;
+    }
+
+    private static int category(String cards) {
+        return HandEvaluator.category(HandEvaluator.evaluate(cards(cards)));
+    }
+
+    private static int compare(String one, String two) {
+        return Integer.signum(HandEvaluator.evaluate(cards(one)) - HandEvaluator.evaluate(cards(two)));
+    }
+
+    @Test
+    public void categories() {
+        assertEquals(HandEvaluator.HIGH_HAND, category("As Kd 9c 7h 4s 3d 2c"));
+        assertEquals(HandEvaluator.ONE_PAIR, category("As Ad 9c 7h 4s 3d 2c"));
+        assertEquals(HandEvaluator.TWO_PAIRS, category("As Ad 9c 9h 4s 4d 2c"));
+        assertEquals(HandEvaluator.THREE_OF_A_KIND, category("As Ad Ac 7h 4s 3d 2c"));
+        assertEquals(HandEvaluator.STRAIGHT, category("6s 5d 4c 3h 2s Kd Qc"));
+        assertEquals(HandEvaluator.STRAIGHT, category("As 5d 4c 3h 2s Kd Qc"));
+        assertEquals(HandEvaluator.FLUSH, category("As Ks 9s 7s 4s 3d 2c"));
+        assertEquals(HandEvaluator.FULL_HOUSE, category("As Ad Ac 7h 7s 3d 2c"));
+        assertEquals(HandEvaluator.FULL_HOUSE, category("As Ad Ac 7h 7s 7d 2c"));
+        assertEquals(HandEvaluator.FOUR_OF_A_KIND, category("As Ad Ac Ah 7s 7d 7c"));
+        assertEquals(HandEvaluator.STRAIGHT_FLUSH, category("5s 4s 3s 2s As Ad Ac"));
+        assertEquals(HandEvaluator.STRAIGHT_FLUSH, category("As Ks Qs Js Ts 9s 8s"));
+    }
+
+    @Test
+    public void fiveAndSixCards() {
+        assertEquals(HandEvaluator.FLUSH, category("As Ks 9s 7s 4s"));
+        assertEquals(HandEvaluator.STRAIGHT, category("Ts 9d 8c 7h 6s 6d"));
+    }
+
+    @Test
+    public void wheelIsTheLowestStraight() {
+        assertEquals(-1, compare("As 5d 4c 3h 2s Kd Qc", "6s 5d 4c 3h 2s Kd Qc"));
+        assertEquals(-1, compare("5s 4s 3s 2s As", "6s 5s 4s 3s 2s"));
+        assertEquals(1, compare("As 5d 4c 3h 2s", "As Ad Ac Kh Qs"));
+    }
+
+    @Test
+    public void kickersDecide() {
+        assertEquals(1, compare("As Ad Kc 9h 7s 3d 2c", "Ac Ah Qc 9d 7d 3s 2d"));
+        assertEquals(1, compare("As Ad 9c 8h 7s 3d 2c", "Ac Ah 9d 8d 6c 3s 2d"));
+        // only the best five cards count
+        assertEquals(0, compare("As Ad Kc Qh Js 3d 2c", "Ac Ah Kd Qd Jc 4s 3s"));
+        assertEquals(1, compare("Ks Kd 4c 4h As 3d 2c", "Kc Kh 4d 4s Qs Jd Tc"));
+        // the better of two trips makes the full house
+        assertEquals(1, compare("Ks Kd Kc 4h 4s 4d 2c", "Qs Qd Qc Ah Ad 3d 2c"));
+        assertEquals(1, compare("As Ks 9s 7s 4s 3s 2d", "Ad Kd 9d 7d 3d 2d 2c"));
+    }
+
+    @Test
+    public void cardIndexRoundTrip() {
+        for (int i = 0; i < 52; i++)
+            assertEquals(i, HandEvaluator.index(HandEvaluator.card(i)));
+    }
+
+    /**
+     * Every random seven cards rank the same way as the best of their 21
+     * five card hands scored by a plain reference evaluator.
+     */
+    @Test
+    public void matchesBruteForceOnRandomHands() {
+        Random random = new Random(42);
+        int[] deck = new int[52];
+        for (int i = 0; i < deck.length; i++)
+            deck[i] = i;
+        long previous = 0;
+        for (int hand = 0; hand < 20000; hand++) {
+            for (int i = 0; i < 7; i++) {
+                int pick = i + random.nextInt(52 - i);
+                int card = deck[pick];
+                deck[pick] = deck[i];
+                deck[i] = card;
+            }
+            long cards = 0;
+            for (int i = 0; i < 7; i++)
+                cards |= 1L << deck[i];
+
+            long expected = bestOfSeven(Arrays.copyOf(deck, 7));
+            int rank = HandEvaluator.evaluate(cards);
+            assertEquals(expected >>> 20, HandEvaluator.category(rank));
+            if (previous != 0) {
+                long previousExpected = bestOfSeven(toIndexes(previous));
+                assertEquals(Long.signum(expected - previousExpected),
+                        Integer.signum(rank - HandEvaluator.evaluate(previous)));
+            }
+            previous = cards;
+        }
+    }
+
+    @Test
+    public void everyCategoryIsReached() {
+        Random random = new Random(7);
+        boolean[] seen = new boolean[HandEvaluator.STRAIGHT_FLUSH + 1];
+        for (int hand = 0; hand < 200000; hand++) {
+            long cards = 0;
+            while (Long.bitCount(cards) < 7)
+                cards |= 1L << random.nextInt(52);
+            seen[HandEvaluator.category(HandEvaluator.evaluate(cards))] = true;
+        }
+        for (int category = 0; category < seen.length; category++)
+            assertTrue("category " + category, seen[category]);
+    }
+
+    private static int[] toIndexes(long cards) {
+        int[] indexes = new int[Long.bitCount(cards)];
+        for (int i = 0; cards != 0; cards &= cards - 1)
+            indexes[i++] = Long.numberOfTrailingZeros(cards);
+        return indexes;
+    }
+
+    private static long bestOfSeven(int[] cards) {
+        long best = -1;
+        for (int skipOne = 0; skipOne < 7; skipOne++) {
+            for (int skipTwo = skipOne + 1; skipTwo < 7; skipTwo++) {
+                int[] five = new int[5];
+                int n = 0;
+                for (int i = 0; i < 7; i++)
+                    if (i != skipOne && i != skipTwo)
+                        five[n++] = cards[i];
+                best = Math.max(best, scoreFive(five));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Category above bit 20, then the ranks ordered by how many of each
+     * there are and then by rank, four bits each.
+     */
+    private static long scoreFive(int[] cards) {
+        int[] counts = new int[13];
+        boolean flush = true;
+        for (int card : cards) {
+            counts[card % 13]++;
+            flush &= card / 13 == cards[0] / 13;
+        }
+        int straightHigh = -1;
+        for (int high = 12; high >= 4 && straightHigh < 0; high--) {
+            boolean run = true;
+            for (int rank = high - 4; rank <= high; rank++)
+                run &= counts[rank] == 1;
+            if (run)
+                straightHigh = high;
+        }
+        if (straightHigh < 0 && counts[12] == 1 && counts[0] == 1 && counts[1] == 1
+                && counts[2] == 1 && counts[3] == 1)
+            straightHigh = 3;
+
+        long kickers = 0;
+        int[] shape = new int[5];
+        int groups = 0;
+        for (int count = 4; count >= 1; count--) {
+            for (int rank = 12; rank >= 0; rank--) {
+                if (counts[rank] == count) {
+                    kickers = kickers << 4 | rank;
+                    shape[groups++] = count;
+                }
+            }
+        }
+        for (int i = groups; i < 5; i++)
+            kickers <<= 4;
+
+        int category;
+        if (straightHigh >= 0 && flush)
+            category = HandEvaluator.STRAIGHT_FLUSH;
+        else if (shape[0] == 4)
+            category = HandEvaluator.FOUR_OF_A_KIND;
+        else if (shape[0] == 3 && shape[1] == 2)
+            category = HandEvaluator.FULL_HOUSE;
+        else if (flush)
+            category = HandEvaluator.FLUSH;
+        else if (straightHigh >= 0)
+            category = HandEvaluator.STRAIGHT;
+        else if (shape[0] == 3)
+            category = HandEvaluator.THREE_OF_A_KIND;
+        else if (shape[0] == 2 && shape[1] == 2)
+            category = HandEvaluator.TWO_PAIRS;
+        else if (shape[0] == 2)
+            category = HandEvaluator.ONE_PAIR;
+        else
+            category = HandEvaluator.HIGH_HAND;
+        if (category == HandEvaluator.STRAIGHT || category == HandEvaluator.STRAIGHT_FLUSH)
+            kickers = (long) straightHigh << 16;
+        return (long) category << 20 | kickers;
+    }
+}
@@ -0,0 +1,57 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.Test;
+import se.cygni.texasholdem.game.ActionType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class HandHistoryRecorderTest {
+
+    @Test
+    public void namesWithSpacesStayOneField() throws IOException {
+        File directory = Files.createTempDirectory("history").toFile();
+        File file = new File(directory, "bot" + HandHistoryRecorder.FILE_SUFFIX);
+        String[] names = {"Big Bob", "100% luck", "plain"};
+        try {
+            HandHistoryRecorder recorder = new HandHistoryRecorder(file, 1 << 20);
+            recorder.handStarted(1);
+            for (String name : names) {
+                recorder.player(name, 1000);
+                recorder.action(name, ActionType.CALL, 20);
+            }
+            recorder.close();
+
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            assertEquals(1 + 2 * names.length, lines.size());
+            for (int i = 0; i < names.length; i++) {
+                String[] player = lines.get(1 + 2 * i).split(" ");
+                String[] action = lines.get(2 + 2 * i).split(" ");
+                assertEquals(3, player.length);
+                assertEquals(names[i], HandHistoryRecorder.parseName(player[1]));
+                assertEquals("1000", player[2]);
+                assertEquals(4, action.length);
+                assertEquals(names[i], HandHistoryRecorder.parseName(action[1]));
+            }
+        } finally {
+            file.delete();
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void disabledRecorderIgnoresEverything() {
+        HandHistoryRecorder recorder = HandHistoryRecorder.disabled();
+        assertFalse(recorder.isEnabled());
+        recorder.handStarted(1);
+        recorder.player("Big Bob", 1000);
+        recorder.action("Big Bob", ActionType.CALL, 20);
+        assertEquals(0, recorder.getDropped());
+    }
+}
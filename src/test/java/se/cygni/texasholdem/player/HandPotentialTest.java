@@ -0,0 +1,119 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class HandPotentialTest {
+
+    private static final int BEHIND = 0;
+    private static final int TIED = 1;
+    private static final int AHEAD = 2;
+
+    private final ParallelEvaluator single = new ParallelEvaluator(1);
+    private final ParallelEvaluator parallel = new ParallelEvaluator(3);
+
+    @After
+    public void shutdown() {
+        single.shutdown();
+        parallel.shutdown();
+    }
+
+    @Test
+    public void oneCardPotentialMatchesFullEnumeration() {
+        Random random = new Random(7);
+        for (int boardSize = 3; boardSize <= 4; boardSize++) {
+            for (int deal = 0; deal < 10; deal++) {
+                long myCards = ParallelEvaluatorTest.draw(random, 0, 2);
+                long boardCards = ParallelEvaluatorTest.draw(random, myCards, boardSize);
+                assertMatchesFullEnumeration(myCards, boardCards, 1);
+            }
+        }
+    }
+
+    @Test
+    public void twoCardPotentialMatchesFullEnumeration() {
+        Random random = new Random(13);
+        for (int deal = 0; deal < 3; deal++) {
+            long myCards = ParallelEvaluatorTest.draw(random, 0, 2);
+            long boardCards = ParallelEvaluatorTest.draw(random, myCards, 3);
+            assertMatchesFullEnumeration(myCards, boardCards, 2);
+        }
+    }
+
+    /**
+     * Nine spades make the flush and six cards pair a hole card; pairing the
+     * board does not count.
+     */
+    @Test
+    public void outsImproveThroughOurOwnCards() {
+        long myCards = HandEvaluatorTest.cards("As Ks");
+        long boardCards = HandEvaluatorTest.cards("2s 7s 9d");
+        assertEquals(15, single.handPotential(myCards, boardCards, 1).getOuts());
+    }
+
+    private void assertMatchesFullEnumeration(long myCards, long boardCards, int lookahead) {
+        HandPotential expected = bruteForcePotential(myCards, boardCards, lookahead);
+        for (ParallelEvaluator evaluator : new ParallelEvaluator[]{single, parallel}) {
+            HandPotential potential = evaluator.handPotential(myCards, boardCards, lookahead);
+            assertEquals(lookahead, potential.getLookahead());
+            assertEquals(expected.getHandStrength(), potential.getHandStrength(), 1e-12);
+            assertEquals(expected.getPositivePotential(), potential.getPositivePotential(), 1e-12);
+            assertEquals(expected.getNegativePotential(), potential.getNegativePotential(), 1e-12);
+        }
+    }
+
+    /**
+     * Evaluates every opponent pair against every runout the pair leaves,
+     * following the counting of Billings et al.
+     */
+    private static HandPotential bruteForcePotential(long myCards, long boardCards, int lookahead) {
+        long unseenCards = HandEvaluator.FULL_DECK & ~(myCards | boardCards);
+        int myRank = HandEvaluator.evaluate(myCards | boardCards);
+        double[] now = new double[3];
+        double[][] transitions = new double[3][3];
+        double[] totals = new double[3];
+        for (int high = 1; high < 52; high++) {
+            for (int low = 0; low < high; low++) {
+                long opponent = 1L << low | 1L << high;
+                if ((unseenCards & opponent) != opponent)
+                    continue;
+                int before = compare(myRank, HandEvaluator.evaluate(boardCards | opponent));
+                now[before]++;
+                long left = unseenCards & ~opponent;
+                for (int first = 0; first < 52; first++) {
+                    if ((left & 1L << first) == 0)
+                        continue;
+                    if (lookahead == 1) {
+                        count(myCards, boardCards | 1L << first, opponent, before, transitions, totals);
+                        continue;
+                    }
+                    for (int second = first + 1; second < 52; second++)
+                        if ((left & 1L << second) != 0)
+                            count(myCards, boardCards | 1L << first | 1L << second, opponent, before,
+                                    transitions, totals);
+                }
+            }
+        }
+        double strength = (now[AHEAD] + now[TIED] / 2) / (now[AHEAD] + now[TIED] + now[BEHIND]);
+        double positive = (transitions[BEHIND][AHEAD] + transitions[BEHIND][TIED] / 2
+                + transitions[TIED][AHEAD] / 2) / (totals[BEHIND] + totals[TIED] / 2);
+        double negative = (transitions[AHEAD][BEHIND] + transitions[TIED][BEHIND] / 2
+                + transitions[AHEAD][TIED] / 2) / (totals[AHEAD] + totals[TIED] / 2);
+        return new HandPotential(lookahead, strength, positive, negative, 0);
+    }
+
+    private static void count(long myCards, long board, long opponent, int before,
+                              double[][] transitions, double[] totals) {
+        int after = compare(HandEvaluator.evaluate(myCards | board), HandEvaluator.evaluate(board | opponent));
+        transitions[before][after]++;
+        totals[before]++;
+    }
+
+    private static int compare(int myRank, int oppRank) {
+        return myRank > oppRank ? AHEAD : myRank == oppRank ? TIED : BEHIND;
+    }
+}
@@ -0,0 +1,34 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HandRankTest {
+
+    private static HandRank rank(String cards) {
+        return HandRank.of(HandEvaluatorTest.cards(cards));
+    }
+
+    @Test
+    public void printsOnlyTheRanksThatDecide() {
+        assertEquals("High hand AK974", rank("As Kd 9c 7h 4s 3d 2c").toString());
+        assertEquals("One pair AKQJ", rank("As Ad Kc Qh Js 3d 2c").toString());
+        assertEquals("Two pairs A94", rank("As Ad 9c 9h 4s 4d 2c").toString());
+        assertEquals("Three of a kind AKQ", rank("As Ad Ac Kh Qs 3d 2c").toString());
+        assertEquals("Straight 5", rank("As 5d 4c 3h 2s Kd Qc").toString());
+        assertEquals("Flush AK974", rank("As Ks 9s 7s 4s 3d 2c").toString());
+        assertEquals("Full house A7", rank("As Ad Ac 7h 7s 3d 2c").toString());
+        assertEquals("Four of a kind A7", rank("As Ad Ac Ah 7s 7d 2c").toString());
+        assertEquals("Straight flush A", rank("As Ks Qs Js Ts 9s 8s").toString());
+    }
+
+    @Test
+    public void ordersLikeTheKey() {
+        HandRank fullHouse = rank("Ks Kd Kc 4h 4s 4d 2c");
+        HandRank lowerFullHouse = rank("Qs Qd Qc Ah Ad 3d 2c");
+        assertTrue(fullHouse.compareTo(lowerFullHouse) > 0);
+        assertEquals(rank("As Ad Kc Qh Js 3d 2c"), rank("Ac Ah Kd Qd Jc 4s 3s"));
+    }
+}
@@ -0,0 +1,183 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.Test;
+import se.cygni.texasholdem.client.CurrentPlayState;
+import se.cygni.texasholdem.communication.message.event.PlayIsStartedEvent;
+import se.cygni.texasholdem.communication.message.event.YouWonAmountEvent;
+import se.cygni.texasholdem.communication.message.request.ActionRequest;
+import se.cygni.texasholdem.game.Action;
+import se.cygni.texasholdem.game.ActionType;
+import se.cygni.texasholdem.game.GamePlayer;
+import se.cygni.texasholdem.game.Player;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocalTableTest {
+
+    private static final long CHIPS = 1000;
+
+    private static final PlayerFactory CALLING_STATION = new PlayerFactory() {
+        @Override
+        public Player create(String name, CurrentPlayState playState) {
+            return new CallingStation(name);
+        }
+    };
+
+    private static final PlayerFactory ALL_IN = new PlayerFactory() {
+        @Override
+        public Player create(String name, CurrentPlayState playState) {
+            return new AllIn(name);
+        }
+    };
+
+    /**
+     * Goes all in every time and checks that no pot it wins is bigger than
+     * what it could win from each player with its own stack.
+     */
+    private static class AllIn extends CallingStation {
+
+        private long[] stacks = new long[0];
+        private long myStack;
+        private long wins;
+
+        AllIn(String name) {
+            super(name);
+        }
+
+        @Override
+        public Action actionRequired(ActionRequest request) {
+            for (Action action : request.getPossibleActions())
+                if (action.getActionType() == ActionType.ALL_IN)
+                    return action;
+            throw new AssertionError("No all in offered");
+        }
+
+        @Override
+        public void onPlayIsStarted(PlayIsStartedEvent event) {
+            List<GamePlayer> players = event.getPlayers();
+            stacks = new long[players.size()];
+            for (int i = 0; i < stacks.length; i++) {
+                stacks[i] = players.get(i).getChipCount();
+                if (players.get(i).getName().equals(getName()))
+                    myStack = stacks[i];
+            }
+        }
+
+        @Override
+        public void onYouWonAmount(YouWonAmountEvent event) {
+            long cap = 0;
+            for (long stack : stacks)
+                cap += Math.min(stack, myStack);
+            assertTrue(event.getWonAmount() + " won with a cap of " + cap, event.getWonAmount() <= cap);
+            wins++;
+        }
+    }
+
+    private static long totalChips(LocalTable table) {
+        long chips = 0;
+        for (LocalTable.Seat seat : table.getSeats())
+            chips += seat.getChips();
+        return chips;
+    }
+
+    private static long boughtChips(LocalTable table) {
+        long chips = 0;
+        for (LocalTable.Seat seat : table.getSeats())
+            chips += CHIPS * (1 + seat.getBuyIns());
+        return chips;
+    }
+
+    @Test
+    public void chipsAreConserved() {
+        LocalTable table = new LocalTable(1, 3, CHIPS, 20, 1000);
+        table.addSeat("station", CALLING_STATION);
+        table.addSeat("all-in", ALL_IN);
+        table.addSeat("station", CALLING_STATION);
+        table.addSeat("all-in", ALL_IN);
+        for (int round = 0; round < 20; round++) {
+            table.play(10);
+            assertEquals(boughtChips(table), totalChips(table));
+        }
+        assertEquals(200, table.getHandsPlayed());
+    }
+
+    @Test
+    public void sidePotsAreCappedByTheWinnersStack() {
+        LocalTable table = new LocalTable(2, 5, CHIPS, 20, 1000);
+        LocalTable.Seat allIn = table.addSeat("all-in", ALL_IN);
+        table.addSeat("station", CALLING_STATION);
+        table.addSeat("station", CALLING_STATION);
+        table.play(300);
+        assertTrue(((AllIn) allIn.getPlayer()).wins > 0);
+        for (LocalTable.Seat seat : table.getSeats())
+            assertEquals(0, seat.getForcedFolds());
+    }
+
+    @Test
+    public void unofferedActionIsForcedToFold() {
+        LocalTable table = new LocalTable(3, 7, CHIPS, 20, 1000);
+        LocalTable.Seat cheat = table.addSeat("cheat", new PlayerFactory() {
+            @Override
+            public Player create(String name, CurrentPlayState playState) {
+                return new CallingStation(name) {
+                    @Override
+                    public Action actionRequired(ActionRequest request) {
+                        return SimulatedEvents.action(ActionType.RAISE, 1);
+                    }
+                };
+            }
+        });
+        LocalTable.Seat station = table.addSeat("station", CALLING_STATION);
+        table.play(10);
+        assertEquals(cheat.getDecisions(), cheat.getForcedFolds());
+        assertTrue(cheat.getForcedFolds() > 0);
+        assertEquals(0, station.getForcedFolds());
+        assertEquals(boughtChips(table), totalChips(table));
+    }
+
+    @Test
+    public void throwingPlayerIsForcedToFold() {
+        LocalTable table = new LocalTable(4, 11, CHIPS, 20, 1000);
+        LocalTable.Seat broken = table.addSeat("broken", new PlayerFactory() {
+            @Override
+            public Player create(String name, CurrentPlayState playState) {
+                return new CallingStation(name) {
+                    @Override
+                    public Action actionRequired(ActionRequest request) {
+                        throw new IllegalStateException("broken");
+                    }
+                };
+            }
+        });
+        table.addSeat("station", CALLING_STATION);
+        table.play(10);
+        assertEquals(broken.getDecisions(), broken.getForcedFolds());
+        assertTrue(broken.getForcedFolds() > 0);
+        assertEquals(boughtChips(table), totalChips(table));
+    }
+
+    @Test
+    public void sameSeedPlaysTheSameHands() {
+        long[] first = play(13);
+        long[] second = play(13);
+        for (int i = 0; i < first.length; i++)
+            assertEquals(first[i], second[i]);
+    }
+
+    private static long[] play(long seed) {
+        LocalTable table = new LocalTable(5, seed, CHIPS, 20, 1000);
+        table.addSeat("station", CALLING_STATION);
+        table.addSeat("all-in", ALL_IN);
+        table.addSeat("station", CALLING_STATION);
+        table.play(50);
+        long[] chips = new long[2 * table.getSeats().size()];
+        for (int i = 0; i < table.getSeats().size(); i++) {
+            chips[2 * i] = table.getSeats().get(i).getChips();
+            chips[2 * i + 1] = table.getSeats().get(i).getBuyIns();
+        }
+        return chips;
+    }
+}
@@ -0,0 +1,127 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelEvaluatorTest {
+
+    private final ParallelEvaluator single = new ParallelEvaluator(1);
+    private final ParallelEvaluator parallel = new ParallelEvaluator(3);
+
+    @After
+    public void shutdown() {
+        single.shutdown();
+        parallel.shutdown();
+    }
+
+    /**
+     * The suit class enumeration, split or not, counts exactly what
+     * evaluating every opponent pair counts.
+     */
+    @Test
+    public void handStrengthMatchesFullEnumeration() {
+        Random random = new Random(3);
+        for (int boardSize = 3; boardSize <= 5; boardSize++) {
+            for (int deal = 0; deal < 20; deal++) {
+                long myCards = draw(random, 0, 2);
+                long boardCards = draw(random, myCards, boardSize);
+                int myRank = HandEvaluator.evaluate(myCards | boardCards);
+                long unseenCards = HandEvaluator.FULL_DECK & ~(myCards | boardCards);
+
+                double expected = bruteForceStrength(myRank, boardCards, unseenCards, OpponentRange.uniform());
+                assertEquals(expected, single.handStrength(myRank, boardCards, unseenCards), 1e-12);
+                assertEquals(expected, parallel.handStrength(myRank, boardCards, unseenCards), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void weightedHandStrengthMatchesFullEnumeration() {
+        int[] order = new int[PreflopTable.HAND_CLASSES];
+        for (int i = 0; i < order.length; i++)
+            order[i] = order.length - 1 - i;
+        OpponentRange range = OpponentRange.top(0.3, order);
+
+        Random random = new Random(5);
+        for (int deal = 0; deal < 20; deal++) {
+            long myCards = draw(random, 0, 2);
+            long boardCards = draw(random, myCards, 3 + deal % 3);
+            int myRank = HandEvaluator.evaluate(myCards | boardCards);
+            long unseenCards = HandEvaluator.FULL_DECK & ~(myCards | boardCards);
+
+            double expected = bruteForceStrength(myRank, boardCards, unseenCards, range);
+            assertEquals(expected, single.handStrength(myRank, boardCards, unseenCards, range), 1e-6);
+            assertEquals(expected, parallel.handStrength(myRank, boardCards, unseenCards, range), 1e-6);
+        }
+    }
+
+    /**
+     * Heads up on the river the equity is the hand strength, so the
+     * simulation has to land close to the exact count.
+     */
+    @Test
+    public void riverEquityConvergesToHandStrength() {
+        Random random = new Random(11);
+        for (int deal = 0; deal < 5; deal++) {
+            long myCards = draw(random, 0, 2);
+            long boardCards = draw(random, myCards, 5);
+            int myRank = HandEvaluator.evaluate(myCards | boardCards);
+            double strength = single.handStrength(myRank, boardCards,
+                    HandEvaluator.FULL_DECK & ~(myCards | boardCards));
+
+            long deadline = System.nanoTime() + 10000000000L;
+            EquityResult simulated = new EquitySimulator(deal + 1)
+                    .simulate(myCards, boardCards, 1, deadline, 0.001, 400000);
+            assertEquals(strength, simulated.getEquity(), 0.01);
+            EquityResult merged = parallel.equity(myCards, boardCards, 1, System.nanoTime() + 2000000000L);
+            assertEquals(strength, merged.getEquity(), 0.02);
+            assertTrue(merged.getSamples() > 0);
+        }
+    }
+
+    @Test
+    public void equityDropsWithMoreOpponents() {
+        long myCards = HandEvaluatorTest.cards("As Ad");
+        long boardCards = HandEvaluatorTest.cards("7c 8d 2h");
+        long deadline = System.nanoTime() + 10000000000L;
+        double headsUp = new EquitySimulator(1).simulate(myCards, boardCards, 1, deadline, 0.002, 200000).getEquity();
+        double fourWay = new EquitySimulator(2).simulate(myCards, boardCards, 3, deadline, 0.002, 200000).getEquity();
+        assertTrue(headsUp > 0.8);
+        assertTrue(fourWay < headsUp - 0.1);
+    }
+
+    static long draw(Random random, long taken, int count) {
+        long cards = 0;
+        while (Long.bitCount(cards) < count) {
+            long card = 1L << random.nextInt(52);
+            if ((taken & card) == 0)
+                cards |= card;
+        }
+        return cards;
+    }
+
+    private static double bruteForceStrength(int myRank, long boardCards, long unseenCards, OpponentRange range) {
+        double won = 0, total = 0;
+        for (int high = 1; high < 52; high++) {
+            if ((unseenCards & 1L << high) == 0)
+                continue;
+            for (int low = 0; low < high; low++) {
+                if ((unseenCards & 1L << low) == 0)
+                    continue;
+                double weight = range.getWeight(low, high);
+                int rank = HandEvaluator.evaluate(boardCards | 1L << low | 1L << high);
+                if (myRank > rank)
+                    won += weight;
+                else if (myRank == rank)
+                    won += weight / 2;
+                total += weight;
+            }
+        }
+        return won / total;
+    }
+}
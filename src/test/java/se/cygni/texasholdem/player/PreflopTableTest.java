@@ -0,0 +1,63 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PreflopTableTest {
+
+    private static File file;
+
+    @BeforeClass
+    public static void generate() throws IOException {
+        file = File.createTempFile("preflop", ".bin");
+        PreflopTableGenerator.main(file.getPath(), "200");
+    }
+
+    @AfterClass
+    public static void delete() {
+        assertTrue(file.delete());
+    }
+
+    /**
+     * The jar ships the table as a resource, read as a stream instead of
+     * memory mapped.
+     */
+    @Test
+    public void streamReadsWhatTheFileMaps() throws IOException {
+        PreflopTable mapped = PreflopTable.load(file);
+        PreflopTable streamed;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            streamed = PreflopTable.load(in, file.getName());
+        }
+        for (int handClass = 0; handClass < PreflopTable.HAND_CLASSES; handClass++)
+            for (int opponents = 1; opponents <= PreflopTable.MAX_OPPONENTS; opponents++)
+                assertEquals(mapped.getEquity(handClass, opponents), streamed.getEquity(handClass, opponents), 0);
+    }
+
+    @Test
+    public void truncatedOrLongerStreamIsRejected() throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertRejected(Arrays.copyOf(bytes, bytes.length - 1));
+        assertRejected(Arrays.copyOf(bytes, bytes.length + 1));
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            PreflopTable.load(new ByteArrayInputStream(bytes), "table");
+            fail("Loaded " + bytes.length + " bytes");
+        } catch (IOException expected) {
+        }
+    }
+}
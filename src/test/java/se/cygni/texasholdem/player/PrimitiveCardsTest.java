@@ -0,0 +1,84 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.Test;
+import se.cygni.texasholdem.game.definitions.Rank;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PrimitiveCardsTest {
+
+    private static final int DEUCE = 0;
+    private static final int FIVE = 3;
+    private static final int SIX = 4;
+    private static final int SEVEN = 5;
+    private static final int NINE = 7;
+    private static final int KING = 11;
+    private static final int ACE = 12;
+
+    private static long cards(String cards) {
+        return HandEvaluatorTest.cards(cards);
+    }
+
+    @Test
+    public void rankRoundTrip() {
+        for (Rank rank : Rank.values())
+            assertSame(rank, PrimitiveCards.toRank(PrimitiveCards.fromRank(rank)));
+        for (int rank = 0; rank < 13; rank++)
+            assertEquals(rank, PrimitiveCards.fromRank(PrimitiveCards.toRank(rank)));
+        assertEquals(DEUCE, PrimitiveCards.fromRank(Rank.DEUCE));
+        assertEquals(ACE, PrimitiveCards.fromRank(Rank.ACE));
+    }
+
+    @Test
+    public void straightHigh() {
+        assertEquals(FIVE, PrimitiveCards.straightHigh(cards("As 2d 3c 4h 5s Kd 9c")));
+        assertEquals(SIX, PrimitiveCards.straightHigh(cards("As 2d 3c 4h 5s 6d 9c")));
+        assertEquals(ACE, PrimitiveCards.straightHigh(cards("Ts Jd Qc Kh As 9c 8d")));
+        assertEquals(-1, PrimitiveCards.straightHigh(cards("As 2d 3c 4h 6s Kd 9c")));
+    }
+
+    @Test
+    public void flushKickers() {
+        assertEquals(0xCB753, PrimitiveCards.flushKickers(cards("As Ks 9s 7s 5s 3s 2d")));
+        assertEquals(0xA8642, PrimitiveCards.flushKickers(cards("2s 4s 6s 8s Ts Qs Ad")));
+        assertEquals(-1, PrimitiveCards.flushKickers(cards("As Ks 9s 7s 5d 3d 2d")));
+    }
+
+    @Test
+    public void twoTripsMakeTheLowerOneAPair() {
+        long mask = cards("7c 7d 7h 9c 9d 9s As");
+        assertEquals(NINE, PrimitiveCards.tripsRank(mask));
+        assertEquals(NINE << 4 | SEVEN, PrimitiveCards.twoPairRanks(mask));
+        assertEquals(-1, PrimitiveCards.quadsRank(mask));
+    }
+
+    @Test
+    public void threePairsKeepTheTopTwo() {
+        long mask = cards("Kc Kd 5h 5s 2c 2d Ah");
+        assertEquals(KING, PrimitiveCards.pairRank(mask));
+        assertEquals(KING << 4 | FIVE, PrimitiveCards.twoPairRanks(mask));
+        assertEquals(-1, PrimitiveCards.tripsRank(mask));
+        assertEquals(ACE, PrimitiveCards.highRank(mask));
+    }
+
+    @Test
+    public void onePairIsNoTwoPair() {
+        assertEquals(-1, PrimitiveCards.twoPairRanks(cards("Kc Kd 5h 4s 2c")));
+        assertEquals(-1, PrimitiveCards.pairRank(cards("Kc Qd 5h 4s 2c")));
+    }
+
+    @Test
+    public void toBytesKeepsTheEncoding() {
+        byte[] bytes = new byte[7];
+        long mask = cards("As 2c 9h");
+        assertEquals(3, PrimitiveCards.toBytes(mask, bytes));
+        long back = 0;
+        for (int i = 0; i < 3; i++)
+            back |= PrimitiveCards.mask(bytes[i]);
+        assertEquals(mask, back);
+        assertEquals(DEUCE, PrimitiveCards.rank(bytes[0]));
+        assertEquals(ACE, PrimitiveCards.rank(bytes[2]));
+        assertEquals(3, PrimitiveCards.suit(bytes[2]));
+    }
+}
@@ -0,0 +1,113 @@
+package se.cygni.texasholdem.player;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RiverEquityTest {
+
+    /**
+     * Win probability, equity with ties split, for every way of dealing
+     * {@code opponents} (one or two) hands from the unseen cards.
+     */
+    private static double[] bruteForce(long myCards, long boardCards, int opponents) {
+        long unseen = HandEvaluator.FULL_DECK & ~(myCards | boardCards);
+        int myRank = HandEvaluator.evaluate(myCards | boardCards);
+        int pairs = 0;
+        long[] hands = new long[1081];
+        int[] ranks = new int[1081];
+        for (long first = unseen; first != 0; first &= first - 1) {
+            for (long second = first & (first - 1); second != 0; second &= second - 1) {
+                hands[pairs] = Long.lowestOneBit(first) | Long.lowestOneBit(second);
+                ranks[pairs++] = HandEvaluator.evaluate(boardCards | hands[pairs - 1]);
+            }
+        }
+
+        double won = 0, share = 0, deals = 0;
+        for (int i = 0; i < pairs; i++) {
+            if (opponents == 1) {
+                deals++;
+                won += myRank > ranks[i] ? 1 : 0;
+                share += myRank > ranks[i] ? 1 : myRank == ranks[i] ? 0.5 : 0;
+                continue;
+            }
+            for (int j = 0; j < pairs; j++) {
+                if ((hands[i] & hands[j]) != 0)
+                    continue;
+                deals++;
+                int best = Math.max(ranks[i], ranks[j]);
+                if (myRank > best) {
+                    won++;
+                    share++;
+                } else if (myRank == best) {
+                    share += 1.0 / (1 + (ranks[i] == myRank ? 1 : 0) + (ranks[j] == myRank ? 1 : 0));
+                }
+            }
+        }
+        return new double[]{won / deals, share / deals};
+    }
+
+    @Test
+    public void headsUpIsExact() {
+        Random random = new Random(17);
+        for (int deal = 0; deal < 30; deal++) {
+            long myCards = ParallelEvaluatorTest.draw(random, 0, 2);
+            long boardCards = ParallelEvaluatorTest.draw(random, myCards, 5);
+            int myRank = HandEvaluator.evaluate(myCards | boardCards);
+            RiverEquity equity = new RiverEquity(boardCards, myCards);
+            double[] expected = bruteForce(myCards, boardCards, 1);
+            assertEquals(expected[0], equity.winProbability(myRank, 1), 1e-12);
+            assertEquals(expected[1], equity.equity(myRank, 1), 1e-12);
+        }
+    }
+
+    @Test
+    public void twoOpponentsWinProbabilityIsExact() {
+        Random random = new Random(19);
+        for (int deal = 0; deal < 10; deal++) {
+            long myCards = ParallelEvaluatorTest.draw(random, 0, 2);
+            long boardCards = ParallelEvaluatorTest.draw(random, myCards, 5);
+            int myRank = HandEvaluator.evaluate(myCards | boardCards);
+            RiverEquity equity = new RiverEquity(boardCards, myCards);
+            double[] expected = bruteForce(myCards, boardCards, 2);
+            assertEquals(expected[0], equity.winProbability(myRank, 2), 1e-12);
+            // ties among three are split by a fitted tie rate, not counted
+            assertEquals(expected[1], equity.equity(myRank, 2), 1e-3);
+        }
+    }
+
+    @Test
+    public void tiedBoardIsSplit() {
+        // the board plays for everyone unless someone holds a spade
+        long boardCards = HandEvaluatorTest.cards("As Ks Qs Js Ts");
+        long myCards = HandEvaluatorTest.cards("2c 3d");
+        RiverEquity equity = new RiverEquity(boardCards, myCards);
+        int myRank = HandEvaluator.evaluate(myCards | boardCards);
+        assertEquals(0, equity.winProbability(myRank, 1), 0);
+        assertEquals(0.5, equity.equity(myRank, 1), 1e-12);
+        assertEquals(1.0 / 3, equity.equity(myRank, 2), 1e-12);
+    }
+
+    @Test
+    public void manyOpponentsStayCloseToSimulation() {
+        Random random = new Random(23);
+        for (int deal = 0; deal < 6; deal++) {
+            long myCards = ParallelEvaluatorTest.draw(random, 0, 2);
+            long boardCards = ParallelEvaluatorTest.draw(random, myCards, 5);
+            int myRank = HandEvaluator.evaluate(myCards | boardCards);
+            RiverEquity equity = new RiverEquity(boardCards, myCards);
+            double previous = 1;
+            for (int opponents = 3; opponents <= 8; opponents += 5) {
+                EquityResult simulated = new EquitySimulator(deal + opponents).simulate(myCards, boardCards,
+                        opponents, System.nanoTime() + 10000000000L, 0.001, 200000);
+                double estimate = equity.equity(myRank, opponents);
+                assertEquals(simulated.getEquity(), estimate, 0.015);
+                assertTrue(estimate <= previous + 1e-12);
+                previous = estimate;
+            }
+        }
+    }
+}